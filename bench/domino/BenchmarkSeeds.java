@@ -0,0 +1,20 @@
+package domino;
+
+/**
+ * The seed every benchmark derives its game seeds from, so that runs are repeatable.
+ *
+ * @author Krishna Sedhain
+ */
+final class BenchmarkSeeds {
+
+    /**
+     * Base seed of the benchmark game series.
+     */
+    static final long SEED = 20250217L;
+
+    /**
+     * Constants only; not instantiated.
+     */
+    private BenchmarkSeeds() {
+    }
+}
@@ -0,0 +1,133 @@
+package domino;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for building a shuffled {@link Board} and for emptying its boneyard.
+ *
+ * <p>Emptying a boneyard uses up its board, so it is timed in batches of fresh boards shuffled
+ * again before each iteration, and every board is drained once.</p>
+ *
+ * @author Krishna Sedhain
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+    /**
+     * Number of boards drained together, one per fresh board.
+     */
+    private static final int BATCH = 4096;
+
+    /**
+     * The maximum number of dots on one side of a domino.
+     */
+    @Param({"3", "6", "9", "12", "15", "18"})
+    public int maxDots;
+
+    /**
+     * Index of the next game in the seed series.
+     */
+    private long game;
+
+    /**
+     * Measures generating and shuffling a complete domino set.
+     *
+     * @return the new board
+     */
+    @Benchmark
+    public Board constructAndShuffle() {
+        return new Board(maxDots, GameSeeds.forGame(BenchmarkSeeds.SEED, game++));
+    }
+
+    /**
+     * Measures drawing every domino from the boneyard one at a time. Divided by the number of
+     * tiles in the set this gives the cost of one draw, which should not grow with the set.
+     *
+     * @param boards    the fresh boards of this iteration
+     * @param blackhole sink for the drawn tiles
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 20, batchSize = BATCH)
+    @Measurement(iterations = 20, batchSize = BATCH)
+    @OperationsPerInvocation(BATCH)
+    public void drawWholeBoneyard(FreshBoards boards, Blackhole blackhole) {
+        Board board = boards.boards[boards.next++];
+        int tile;
+        while ((tile = board.drawFromBoneyard()) >= 0) {
+            blackhole.consume(tile);
+        }
+    }
+
+    /**
+     * One batch of boards for {@link #drawWholeBoneyard(FreshBoards, Blackhole)}, built again
+     * before every iteration since draining a boneyard uses up its board.
+     */
+    @State(Scope.Thread)
+    public static class FreshBoards {
+
+        /**
+         * The maximum number of dots on one side of a domino.
+         */
+        @Param({"3", "6", "9", "12", "15", "18"})
+        public int maxDots;
+
+        /**
+         * The boards of the current iteration.
+         */
+        private Board[] boards;
+
+        /**
+         * Index of the next board to drain.
+         */
+        private int next;
+
+        /**
+         * Index of the next game in the seed series.
+         */
+        private long game;
+
+        /**
+         * Builds the boards once, so shuffling a batch allocates almost nothing and leaves no
+         * garbage to be collected while the batch is timed.
+         */
+        @Setup(Level.Trial)
+        public void buildBoards() {
+            boards = new Board[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                boards[i] = new Board(maxDots);
+            }
+        }
+
+        /**
+         * Reshuffles every board of the batch, outside of the measured time.
+         */
+        @Setup(Level.Iteration)
+        public void shuffleBatch() {
+            for (Board board : boards) {
+                board.reset(GameSeeds.forGame(BenchmarkSeeds.SEED, game++));
+            }
+            next = 0;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package domino;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures exact endgame solves from a cold table. The positions are the first turns with an
+ * empty boneyard and a real choice in games between two heaviest-tile players, so they are
+ * the endgames the solver meets in play.
+ *
+ * @author Krishna Sedhain
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EndgameBenchmark {
+
+    /**
+     * Number of positions cycled through; a power of two.
+     */
+    private static final int POSITIONS = 64;
+
+    /**
+     * The maximum number of dots on one side of a domino.
+     */
+    @Param({"6", "9", "12"})
+    public int maxDots;
+
+    /**
+     * Endgame positions with the solving player to move.
+     */
+    private GameEngine[] engines;
+
+    /**
+     * The legal moves of every position.
+     */
+    private int[][] moves;
+
+    /**
+     * The number of legal moves of every position.
+     */
+    private int[] counts;
+
+    /**
+     * A solver with an empty table, rebuilt before every invocation.
+     */
+    private EndgameSolver solver;
+
+    /**
+     * Index of the next position to solve.
+     */
+    private int next;
+
+    /**
+     * Plays games until their boneyard runs out, outside of the measured time.
+     */
+    @Setup(Level.Trial)
+    public void buildPositions() {
+        Strategy heaviest = new HeaviestTileStrategy();
+        engines = new GameEngine[POSITIONS];
+        moves = new int[POSITIONS][];
+        counts = new int[POSITIONS];
+        long game = 0;
+        for (int i = 0; i < POSITIONS; i++) {
+            while (engines[i] == null) {
+                GameEngine engine = new GameEngine(maxDots, GameSeeds.forGame(BenchmarkSeeds.SEED, game++));
+                engine.deal();
+                int[] legal = new int[engine.maxMoves()];
+                int count = 0;
+                while (!engine.isTerminal()
+                        && (engine.getBoard().getBoneyardSize() > 0 || (count = engine.legalMoves(legal)) < 2)) {
+                    engine.step(heaviest);
+                }
+                if (!engine.isTerminal()) {
+                    engines[i] = engine;
+                    moves[i] = legal;
+                    counts[i] = count;
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a solver with an empty table so every solve starts cold.
+     */
+    @Setup(Level.Invocation)
+    public void newSolver() {
+        solver = new EndgameSolver(new FirstFitStrategy(), 20, Long.MAX_VALUE);
+    }
+
+    /**
+     * Measures one exact solve.
+     *
+     * @return the index of the best move
+     */
+    @Benchmark
+    public int solve() {
+        int i = next++ & (POSITIONS - 1);
+        return solver.solve(engines[i], moves[i], counts[i]);
+    }
+}
@@ -0,0 +1,133 @@
+package domino;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many Monte Carlo playouts per second {@link MctsStrategy} makes on an opening
+ * position, for both kinds of parallelism and a range of thread counts. The playouts are
+ * reported as a secondary {@code playouts} rate; compare it across thread counts to see how
+ * the search scales on the machine at hand.
+ *
+ * @author Krishna Sedhain
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MctsBenchmark {
+
+    /**
+     * Playouts per searched move.
+     */
+    private static final int PLAYOUTS = 4096;
+
+    /**
+     * The maximum number of dots on one side of a domino.
+     */
+    @Param({"6", "9"})
+    public int maxDots;
+
+    /**
+     * How the search is spread over the threads.
+     */
+    @Param({"Root", "Tree"})
+    public String parallelism;
+
+    /**
+     * Number of search threads.
+     */
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    /**
+     * The strategy under test.
+     */
+    private MctsStrategy strategy;
+
+    /**
+     * The position searched, with the human to move after the deal.
+     */
+    private GameEngine engine;
+
+    /**
+     * The legal moves of the position.
+     */
+    private int[] moves;
+
+    /**
+     * The number of legal moves.
+     */
+    private int count;
+
+    /**
+     * Counts the playouts made, reported by JMH next to the searches per second.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class PlayoutCounter {
+
+        /**
+         * Playouts made during the current iteration.
+         */
+        public long playouts;
+
+        /**
+         * Resets the counter before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            playouts = 0;
+        }
+    }
+
+    /**
+     * Deals the position and builds the strategy.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        strategy = new MctsStrategy(Parallelism.valueOf(parallelism), threads, Long.MAX_VALUE, PLAYOUTS,
+                BenchmarkSeeds.SEED);
+        engine = new GameEngine(maxDots, GameSeeds.forGame(BenchmarkSeeds.SEED, 0));
+        engine.deal();
+        moves = new int[engine.maxMoves()];
+        count = engine.legalMoves(moves);
+    }
+
+    /**
+     * Stops the search threads.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        strategy.close();
+    }
+
+    /**
+     * Measures one search of the opening move.
+     *
+     * @param counter the playout counter
+     * @return the chosen move
+     */
+    @Benchmark
+    public int search(PlayoutCounter counter) {
+        int choice = strategy.chooseMove(engine, moves, count);
+        counter.playouts += strategy.getLastPlayouts();
+        return choice;
+    }
+}
@@ -0,0 +1,175 @@
+package domino;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for move validation and for a single computer move in the middle of a game.
+ *
+ * <p>Validation does not change the game, so it cycles through a fixed set of positions like
+ * {@link EndgameBenchmark}. A computer move does, so it is timed in batches of fresh
+ * positions dealt again before each iteration, and every position is played on once.</p>
+ *
+ * @author Krishna Sedhain
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveBenchmark {
+
+    /**
+     * Number of computer moves made before the measured position is reached.
+     */
+    private static final int OPENING_MOVES = 4;
+
+    /**
+     * Number of positions cycled through; a power of two.
+     */
+    private static final int POSITIONS = 1024;
+
+    /**
+     * Number of computer moves timed together, one per fresh position.
+     */
+    private static final int BATCH = 4096;
+
+    /**
+     * The maximum number of dots on one side of a domino.
+     */
+    @Param({"6", "9", "12", "15", "18"})
+    public int maxDots;
+
+    /**
+     * Games in the middle of play, with the player to move still to move.
+     */
+    private GameEngine[] engines;
+
+    /**
+     * Index of the next position to check.
+     */
+    private int next;
+
+    /**
+     * Deals the positions, outside of the measured time.
+     */
+    @Setup(Level.Trial)
+    public void buildPositions() {
+        engines = new GameEngine[POSITIONS];
+        long game = 0;
+        for (int i = 0; i < POSITIONS; i++) {
+            engines[i] = new GameEngine(maxDots);
+            game = dealPosition(engines[i], game);
+        }
+    }
+
+    /**
+     * Measures checking whether the player to move has any valid play.
+     *
+     * @return {@code true} if a valid play exists
+     */
+    @Benchmark
+    public boolean validPlayExists() {
+        GameEngine engine = engines[next++ & (POSITIONS - 1)];
+        return engine.hasValidPlay(engine.getPlayer(engine.getCurrentPlayer()));
+    }
+
+    /**
+     * Measures a complete first-fit computer move, including any draws from the boneyard.
+     *
+     * @param positions the fresh positions of this iteration
+     * @return {@code true} if a domino was played
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 20, batchSize = BATCH)
+    @Measurement(iterations = 20, batchSize = BATCH)
+    @OperationsPerInvocation(BATCH)
+    public boolean computerMove(FreshPositions positions) {
+        return positions.engines[positions.next++].step();
+    }
+
+    /**
+     * Deals games on an engine until one is still going after a few opening moves.
+     *
+     * @param engine the engine, reset for every game
+     * @param game   the index in the seed series of the first game to deal
+     * @return the index of the game after the one dealt
+     */
+    static long dealPosition(GameEngine engine, long game) {
+        do {
+            engine.reset(GameSeeds.forGame(BenchmarkSeeds.SEED, game++));
+            engine.deal();
+            for (int move = 0; move < OPENING_MOVES && !engine.isTerminal(); move++) {
+                engine.step();
+            }
+        } while (engine.isTerminal());
+        return game;
+    }
+
+    /**
+     * One batch of positions for {@link #computerMove(FreshPositions)}, dealt again before
+     * every iteration since each move changes its game.
+     */
+    @State(Scope.Thread)
+    public static class FreshPositions {
+
+        /**
+         * The maximum number of dots on one side of a domino.
+         */
+        @Param({"6", "9", "12", "15", "18"})
+        public int maxDots;
+
+        /**
+         * The positions of the current iteration.
+         */
+        private GameEngine[] engines;
+
+        /**
+         * Index of the next position to play on.
+         */
+        private int next;
+
+        /**
+         * Index of the next game in the seed series.
+         */
+        private long game;
+
+        /**
+         * Builds the engines once, so dealing a batch allocates almost nothing and leaves no
+         * garbage to be collected while the batch is timed.
+         */
+        @Setup(Level.Trial)
+        public void buildEngines() {
+            engines = new GameEngine[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                engines[i] = new GameEngine(maxDots);
+            }
+        }
+
+        /**
+         * Deals a new batch of positions, outside of the measured time.
+         */
+        @Setup(Level.Iteration)
+        public void dealBatch() {
+            for (GameEngine engine : engines) {
+                game = dealPosition(engine, game);
+            }
+            next = 0;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package domino;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete computer-vs-computer games per second, from dealing to the winner.
+ * Bigger sets make longer games, so the turns taken are also reported as a secondary
+ * {@code turns} rate; the cost per turn should stay flat as the set grows. Games are dealt
+ * from a fixed series of seeds so every run plays the same games.
+ *
+ * @author Krishna Sedhain
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PlayoutBenchmark {
+
+    /**
+     * The maximum number of dots on one side of a domino.
+     */
+    @Param({"3", "4", "5", "6", "7", "8", "9", "12", "15", "18"})
+    public int maxDots;
+
+    /**
+     * Index of the next game in the seed series.
+     */
+    private long game;
+
+    /**
+     * Restarts the seed series for every trial.
+     */
+    @Setup(Level.Trial)
+    public void resetSeries() {
+        game = 0;
+    }
+
+    /**
+     * Counts the turns played, reported by JMH next to the games per second.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class TurnCounter {
+
+        /**
+         * Turns played during the current iteration.
+         */
+        public long turns;
+
+        /**
+         * Resets the counter before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            turns = 0;
+        }
+    }
+
+    /**
+     * Measures one full game.
+     *
+     * @param counter the turn counter
+     * @return the winner of the game
+     */
+    @Benchmark
+    public Players fullGame(TurnCounter counter) {
+        GameEngine engine = new GameEngine(maxDots, GameSeeds.forGame(BenchmarkSeeds.SEED, game++));
+        engine.deal();
+        Players winner = engine.playOut();
+        counter.turns += engine.getTurnCount();
+        return winner;
+    }
+}
@@ -0,0 +1,142 @@
+package domino;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of one strategy decision, and of generating the legal moves it chooses
+ * from, over a fixed pool of mid-game positions. Neither should allocate; run with
+ * {@code -prof gc} to check.
+ *
+ * @author Krishna Sedhain
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StrategyBenchmark {
+
+    /**
+     * Number of positions cycled through; a power of two.
+     */
+    private static final int POSITIONS = 256;
+
+    /**
+     * Number of computer moves made before a position is taken.
+     */
+    private static final int OPENING_MOVES = 4;
+
+    /**
+     * The maximum number of dots on one side of a domino.
+     */
+    @Param({"6", "12", "18"})
+    public int maxDots;
+
+    /**
+     * The strategy to measure.
+     */
+    @Param({"first-fit", "heaviest", "diversity"})
+    public String strategyName;
+
+    /**
+     * The strategy built from {@link #strategyName}.
+     */
+    private Strategy strategy;
+
+    /**
+     * Mid-game positions with at least one legal move.
+     */
+    private GameEngine[] engines;
+
+    /**
+     * The legal moves of every position.
+     */
+    private int[][] moves;
+
+    /**
+     * The number of legal moves of every position.
+     */
+    private int[] counts;
+
+    /**
+     * Scratch buffer for move generation.
+     */
+    private int[] buffer;
+
+    /**
+     * Index of the next position to use.
+     */
+    private int next;
+
+    /**
+     * Builds the strategy and the positions, outside of the measured time.
+     */
+    @Setup(Level.Trial)
+    public void buildPositions() {
+        switch (strategyName) {
+            case "first-fit" -> strategy = new FirstFitStrategy();
+            case "heaviest" -> strategy = new HeaviestTileStrategy();
+            case "diversity" -> strategy = new SuitDiversityStrategy();
+            default -> throw new IllegalArgumentException("Unknown strategy: " + strategyName);
+        }
+        engines = new GameEngine[POSITIONS];
+        moves = new int[POSITIONS][];
+        counts = new int[POSITIONS];
+        long game = 0;
+        for (int i = 0; i < POSITIONS; i++) {
+            GameEngine engine;
+            int[] legal;
+            int count;
+            do {
+                engine = new GameEngine(maxDots, GameSeeds.forGame(BenchmarkSeeds.SEED, game++));
+                engine.deal();
+                for (int j = 0; j < OPENING_MOVES && !engine.isTerminal(); j++) {
+                    engine.step();
+                }
+                legal = new int[engine.maxMoves()];
+                count = engine.legalMoves(legal);
+            } while (count == 0);
+            engines[i] = engine;
+            moves[i] = legal;
+            counts[i] = count;
+        }
+        buffer = new int[engines[0].maxMoves()];
+    }
+
+    /**
+     * Measures one decision among precomputed legal moves.
+     *
+     * @return the chosen index
+     */
+    @Benchmark
+    public int chooseMove() {
+        int i = next++ & (POSITIONS - 1);
+        return strategy.chooseMove(engines[i], moves[i], counts[i]);
+    }
+
+    /**
+     * Measures generating the legal moves and choosing one of them.
+     *
+     * @return the chosen index
+     */
+    @Benchmark
+    public int generateAndChoose() {
+        GameEngine engine = engines[next++ & (POSITIONS - 1)];
+        int count = engine.legalMoves(buffer);
+        return strategy.chooseMove(engine, buffer, count);
+    }
+}
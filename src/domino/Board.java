@@ -1,20 +1,44 @@
 package domino;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Deque;
-import java.util.LinkedList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents the game board for a domino game, managing available and played dominos.
  *
+ * <p>Dominos are stored as tile indices of a {@link DominoSet}, and played dominos as
+ * placements (tile plus orientation), so drawing and playing never allocate.
+ * {@link Domino} objects are only created for the front-ends.</p>
+ *
+ * <p>Every deal is shuffled from a 64-bit seed, see {@link GameSeeds}, so any game can be
+ * reproduced exactly from {@link #getSeed()}.</p>
+ *
  * @author Krishna Sedhain
  */
 public class Board {
-    private ArrayList<Domino> availableDice;
-    private Deque<Domino> playedDomino;
+    private final DominoSet dominoSet;
+    // The shuffled set in draw order. The boneyard is availableDice[drawCursor..length);
+    // drawing just moves the cursor, so no tiles are shifted.
+    private final int[] availableDice;
+    private int drawCursor;
+    // The same tiles as a bitset, for constant-time membership and pip matching.
+    private final TileBits boneyard;
+    // Placements in the line of play, stored as a circular array starting at head and read
+    // left to right. The line can never be longer than the set, so it is never resized.
+    private final int[] playedDomino;
+    private int head;
+    private int playedCount;
+    // The open ends of the line of play, kept up to date on every placement.
+    private int leftEnd;
+    private int rightEnd;
+    // The seed the current boneyard was shuffled from.
+    private long seed;
     // Represents the number of unique domino values (e.g., if maxDots is 6, dominoRange will be 7 for values 0-6)
-    private int dominoRange;
+    private final int dominoRange;
 
     /**
      * Default constructor that initializes the board with a traditional domino set (0-6).
@@ -30,28 +54,190 @@ public class Board {
      * @param maxDots the maximum number of dots on one side of a domino.
      */
     public Board(int maxDots) {
+        this(maxDots, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Constructs a Board whose set is shuffled with the next seed of the given generator.
+     *
+     * @param maxDots the maximum number of dots on one side of a domino.
+     * @param random  the generator the game seed is taken from.
+     */
+    public Board(int maxDots, RandomGenerator random) {
+        this(maxDots, random.nextLong());
+    }
+
+    /**
+     * Constructs a Board whose set is shuffled from the given seed. Boards built with the
+     * same maximum dots and seed always deal the same boneyard.
+     *
+     * @param maxDots the maximum number of dots on one side of a domino.
+     * @param seed    the game seed.
+     */
+    public Board(int maxDots, long seed) {
         if (maxDots < 0) {
             throw new IllegalArgumentException("Maximum dots must be non-negative.");
         }
         // dominoRange is one more than maxDots since values range from 0 to maxDots.
         this.dominoRange = maxDots + 1;
-        initializeBoard();
+        this.dominoSet = DominoSet.of(maxDots);
+        this.availableDice = new int[dominoSet.size()];
+        this.boneyard = new TileBits(dominoSet);
+        this.playedDomino = new int[dominoSet.size()];
+        initializeBoard(seed);
+    }
+
+    /**
+     * Clears the board and deals a new shuffled set into the boneyard, so one board can be
+     * reused for many games.
+     *
+     * @param random the generator the game seed is taken from
+     */
+    public void reset(RandomGenerator random) {
+        initializeBoard(random.nextLong());
+    }
+
+    /**
+     * Clears the board and deals the set shuffled from the given seed into the boneyard.
+     *
+     * @param seed the game seed
+     */
+    public void reset(long seed) {
+        initializeBoard(seed);
+    }
+
+    /**
+     * Initializes the board by filling the boneyard with the whole domino set and shuffling it.
+     *
+     * @param seed the game seed the set is shuffled from
+     */
+    private void initializeBoard(long seed) {
+        this.seed = seed;
+        RandomGenerator random = GameSeeds.random(seed);
+        drawCursor = 0;
+        head = 0;
+        playedCount = 0;
+        for (int tile = 0; tile < availableDice.length; tile++) {
+            availableDice[tile] = tile;
+            boneyard.add(tile);
+        }
+        for (int i = availableDice.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = availableDice[i];
+            availableDice[i] = availableDice[j];
+            availableDice[j] = temp;
+        }
     }
 
     /**
-     * Initializes the board by generating a domino set and shuffling them.
+     * Makes this board an exact copy of another board built from the same domino set,
+     * including the order of the boneyard.
+     *
+     * @param other the board to copy
+     */
+    public void copyFrom(Board other) {
+        if (other.dominoSet != dominoSet) {
+            throw new IllegalArgumentException("Boards must use the same domino set.");
+        }
+        System.arraycopy(other.availableDice, 0, availableDice, 0, availableDice.length);
+        System.arraycopy(other.playedDomino, 0, playedDomino, 0, playedDomino.length);
+        boneyard.copyFrom(other.boneyard);
+        drawCursor = other.drawCursor;
+        head = other.head;
+        playedCount = other.playedCount;
+        leftEnd = other.leftEnd;
+        rightEnd = other.rightEnd;
+        seed = other.seed;
+    }
+
+    /**
+     * Writes the seed, the boneyard in draw order and the line of play from left to right
+     * into a game snapshot, see {@link GameSnapshots}.
+     *
+     * @param out the buffer the snapshot is written to
      */
-    private void initializeBoard() {
-        availableDice = new ArrayList<>();
-        playedDomino = new LinkedList<>();
-        // Generate domino set for values 0 to (dominoRange - 1)
-        for (int i = 0; i < dominoRange; i++) {
-            for (int j = i; j < dominoRange; j++) {
-                Domino dice = new Domino(i, j);
-                availableDice.add(dice);
+    void writeSnapshot(ByteBuffer out) {
+        out.putLong(seed);
+        out.put((byte) (availableDice.length - drawCursor));
+        for (int i = drawCursor; i < availableDice.length; i++) {
+            out.put((byte) availableDice[i]);
+        }
+        out.put((byte) playedCount);
+        boolean wide = GameSnapshots.placementWidth(dominoSet) == 2;
+        for (int i = 0; i < playedCount; i++) {
+            int placement = getPlacement(i);
+            if (wide) {
+                out.putShort((short) placement);
+            } else {
+                out.put((byte) placement);
             }
         }
-        Collections.shuffle(availableDice);
+    }
+
+    /**
+     * Reads the board back from a game snapshot written by {@link #writeSnapshot(ByteBuffer)}.
+     * The tiles drawn before the snapshot are not part of it; they are kept in front of the
+     * boneyard in tile order, where nothing reads them.
+     *
+     * @param in the buffer the snapshot is read from
+     * @throws IllegalArgumentException if the snapshot names a tile twice or one outside the set
+     */
+    void readSnapshot(ByteBuffer in) {
+        seed = in.getLong();
+        int size = Byte.toUnsignedInt(in.get());
+        if (size > availableDice.length) {
+            throw new IllegalArgumentException("Corrupt game snapshot.");
+        }
+        drawCursor = availableDice.length - size;
+        boneyard.clear();
+        for (int i = drawCursor; i < availableDice.length; i++) {
+            int tile = Byte.toUnsignedInt(in.get());
+            if (tile >= availableDice.length || boneyard.contains(tile)) {
+                throw new IllegalArgumentException("Corrupt game snapshot.");
+            }
+            availableDice[i] = tile;
+            boneyard.add(tile);
+        }
+        int drawn = 0;
+        for (int tile = 0; tile < availableDice.length; tile++) {
+            if (!boneyard.contains(tile)) {
+                availableDice[drawn++] = tile;
+            }
+        }
+        playedCount = Byte.toUnsignedInt(in.get());
+        if (playedCount > playedDomino.length) {
+            throw new IllegalArgumentException("Corrupt game snapshot.");
+        }
+        boolean wide = GameSnapshots.placementWidth(dominoSet) == 2;
+        head = 0;
+        for (int i = 0; i < playedCount; i++) {
+            int placement = wide ? Short.toUnsignedInt(in.getShort()) : Byte.toUnsignedInt(in.get());
+            if (placement >= 2 * availableDice.length) {
+                throw new IllegalArgumentException("Corrupt game snapshot.");
+            }
+            playedDomino[i] = placement;
+        }
+        if (playedCount > 0) {
+            leftEnd = dominoSet.leftOf(playedDomino[0]);
+            rightEnd = dominoSet.rightOf(playedDomino[playedCount - 1]);
+        }
+    }
+
+    /**
+     * Replaces the boneyard with other tiles, keeping its size. The tiles are drawn in the
+     * order given. Used to deal a different guess of the hidden tiles.
+     *
+     * @param tiles the new boneyard tiles
+     * @param from  the index of the first tile in {@code tiles}; {@link #getBoneyardSize()}
+     *              tiles are taken
+     */
+    public void refillBoneyard(int[] tiles, int from) {
+        boneyard.clear();
+        for (int i = drawCursor; i < availableDice.length; i++) {
+            int tile = tiles[from++];
+            availableDice[i] = tile;
+            boneyard.add(tile);
+        }
     }
 
     /**
@@ -60,51 +246,108 @@ public class Board {
      * @return List of available dominos, or null if empty.
      */
     public ArrayList<Domino> getAvailableDomino() {
-        if (this.availableDice.isEmpty()) {
+        if (drawCursor == availableDice.length) {
             return null;
         }
-        return availableDice;
+        ArrayList<Domino> dominos = new ArrayList<>(availableDice.length - drawCursor);
+        for (int i = drawCursor; i < availableDice.length; i++) {
+            dominos.add(dominoSet.toDomino(DominoSet.placement(availableDice[i], false)));
+        }
+        return dominos;
     }
 
     /**
-     * Draws a domino from the boneyard.
+     * Draws a tile from the boneyard in constant time.
      *
-     * @return The drawn domino, or null if the boneyard is empty.
+     * @return The drawn tile index, or -1 if the boneyard is empty.
      */
-    public Domino drawFromBoneyard() {
-        if (availableDice.isEmpty()) {
-            System.out.println("Boneyard is empty");
-            return null;
+    public int drawFromBoneyard() {
+        if (drawCursor == availableDice.length) {
+            return -1;
         }
-        // Remove and return the first domino.
-        return availableDice.remove(0);
+        // Take the next tile in draw order and advance the cursor past it.
+        int tile = availableDice[drawCursor++];
+        boneyard.remove(tile);
+        return tile;
     }
 
     /**
      * Places a domino on the left end of the played dominos.
      *
-     * @param dice The domino to place on the left.
+     * @param placement The placement (tile and orientation) to place on the left.
      */
-    public void placeOnLeft(Domino dice) {
-        playedDomino.addFirst(dice);
+    public void placeOnLeft(int placement) {
+        head = head == 0 ? playedDomino.length - 1 : head - 1;
+        playedDomino[head] = placement;
+        leftEnd = dominoSet.leftOf(placement);
+        if (playedCount++ == 0) {
+            rightEnd = dominoSet.rightOf(placement);
+        }
     }
 
     /**
      * Places a domino on the right end of the played dominos.
      *
-     * @param dice The domino to place on the right.
+     * @param placement The placement (tile and orientation) to place on the right.
      */
-    public void placeOnRight(Domino dice) {
-        playedDomino.addLast(dice);
+    public void placeOnRight(int placement) {
+        int tail = head + playedCount;
+        playedDomino[tail >= playedDomino.length ? tail - playedDomino.length : tail] = placement;
+        rightEnd = dominoSet.rightOf(placement);
+        if (playedCount++ == 0) {
+            leftEnd = dominoSet.leftOf(placement);
+        }
     }
 
     /**
-     * Retrieves the deque of played dominos.
+     * Retrieves the played dominos, from left to right, as a deque of {@link Domino} views.
      *
      * @return Deque containing the played dominos.
      */
     public Deque<Domino> getPlayedDomino() {
-        return playedDomino;
+        Deque<Domino> dominos = new ArrayDeque<>(playedCount);
+        for (int i = 0; i < playedCount; i++) {
+            dominos.addLast(dominoSet.toDomino(getPlacement(i)));
+        }
+        return dominos;
+    }
+
+    /**
+     * Retrieves the placement at the given position in the line of play.
+     *
+     * @param position The position, counted from the left end starting at 0.
+     * @return The placement at that position.
+     */
+    public int getPlacement(int position) {
+        int index = head + position;
+        return playedDomino[index >= playedDomino.length ? index - playedDomino.length : index];
+    }
+
+    /**
+     * Retrieves the number of dominos in the line of play.
+     *
+     * @return The number of played dominos.
+     */
+    public int getPlayedCount() {
+        return playedCount;
+    }
+
+    /**
+     * Retrieves the number of dots on the open left end of the line of play.
+     *
+     * @return The left open end; only meaningful when at least one domino was played.
+     */
+    public int getLeftEnd() {
+        return leftEnd;
+    }
+
+    /**
+     * Retrieves the number of dots on the open right end of the line of play.
+     *
+     * @return The right open end; only meaningful when at least one domino was played.
+     */
+    public int getRightEnd() {
+        return rightEnd;
     }
 
     /**
@@ -113,7 +356,16 @@ public class Board {
      * @return The first played domino.
      */
     public Domino getFirstPlayedDomino() {
-        return playedDomino.getFirst();
+        return dominoSet.toDomino(playedDomino[head]);
+    }
+
+    /**
+     * Retrieves the tiles remaining in the boneyard as a bitset.
+     *
+     * @return The boneyard tiles; must not be modified.
+     */
+    public TileBits getBoneyard() {
+        return boneyard;
     }
 
     /**
@@ -122,7 +374,25 @@ public class Board {
      * @return The number of dominos remaining.
      */
     public int getBoneyardSize() {
-        return availableDice.size();
+        return availableDice.length - drawCursor;
+    }
+
+    /**
+     * Retrieves the seed the current boneyard was shuffled from.
+     *
+     * @return The game seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Retrieves the domino set the board was built from.
+     *
+     * @return The domino set.
+     */
+    public DominoSet getDominoSet() {
+        return dominoSet;
     }
 
     /**
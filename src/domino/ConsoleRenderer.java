@@ -0,0 +1,213 @@
+package domino;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Renders the console game into a reusable buffer that is written out once per turn.
+ *
+ * <p>Text, numbers and dominos are appended to one {@link StringBuilder}, without building
+ * intermediate strings, and {@link #flush()} copies the buffer into a reusable
+ * {@code char[]} and writes it to the stream in one go. The stream is not flushed line by line
+ * as {@code System.out} is, so a turn costs one write however long the line of play has grown.
+ * The game must flush before it waits for input, so the prompt is on screen.</p>
+ *
+ * <p>In quiet mode, for scripted or piped games, nothing is rendered at all except the lines
+ * appended with {@link #summary(String)}, such as the result of the game.</p>
+ *
+ * @author Krishna Sedhain
+ */
+final class ConsoleRenderer {
+
+    /**
+     * The text of the current turn.
+     */
+    private final StringBuilder buffer = new StringBuilder(1024);
+
+    /**
+     * The buffer copied out on every flush; grown when a turn renders more.
+     */
+    private char[] chars = new char[1024];
+
+    /**
+     * Encodes the text into the output stream, buffering it until the next flush.
+     */
+    private final Writer writer;
+
+    /**
+     * {@code true} if only summary lines are written.
+     */
+    private final boolean quiet;
+
+    /**
+     * Constructs a renderer over an output stream.
+     *
+     * @param stream the stream the game is written to, usually {@code System.out}
+     * @param quiet  {@code true} to render nothing but the summary lines
+     */
+    ConsoleRenderer(OutputStream stream, boolean quiet) {
+        this.writer = new OutputStreamWriter(stream, Charset.defaultCharset());
+        this.quiet = quiet;
+    }
+
+    /**
+     * Appends text to the current line.
+     *
+     * @param text the text
+     * @return this renderer
+     */
+    ConsoleRenderer text(String text) {
+        if (!quiet) {
+            buffer.append(text);
+        }
+        return this;
+    }
+
+    /**
+     * Appends a number to the current line.
+     *
+     * @param number the number
+     * @return this renderer
+     */
+    ConsoleRenderer number(int number) {
+        if (!quiet) {
+            buffer.append(number);
+        }
+        return this;
+    }
+
+    /**
+     * Appends a domino in the format {@code [left right]} to the current line.
+     *
+     * @param dominoSet the domino set the placement belongs to
+     * @param placement the domino and its orientation, see {@link DominoSet#placement}
+     * @return this renderer
+     */
+    ConsoleRenderer domino(DominoSet dominoSet, int placement) {
+        if (!quiet) {
+            appendDomino(dominoSet, placement);
+        }
+        return this;
+    }
+
+    /**
+     * Appends text and ends the line.
+     *
+     * @param text the text
+     * @return this renderer
+     */
+    ConsoleRenderer line(String text) {
+        return text(text).newLine();
+    }
+
+    /**
+     * Ends the current line.
+     *
+     * @return this renderer
+     */
+    ConsoleRenderer newLine() {
+        if (!quiet) {
+            buffer.append('\n');
+        }
+        return this;
+    }
+
+    /**
+     * Appends a line that is written even in quiet mode, such as the result of the game.
+     *
+     * @param text the text of the line
+     */
+    void summary(String text) {
+        buffer.append(text).append('\n');
+    }
+
+    /**
+     * Appends the line of play in two lines, the dominos alternating between them.
+     *
+     * @param board the board
+     */
+    void board(Board board) {
+        if (quiet) {
+            return;
+        }
+        DominoSet dominoSet = board.getDominoSet();
+        int count = board.getPlayedCount();
+        for (int i = 0; i < count; i += 2) {
+            appendDomino(dominoSet, board.getPlacement(i));
+        }
+        buffer.append("\n  ");
+        for (int i = 1; i < count; i += 2) {
+            appendDomino(dominoSet, board.getPlacement(i));
+        }
+        buffer.append('\n');
+    }
+
+    /**
+     * Appends a player's tray in one line, in tray order.
+     *
+     * @param dominoSet the domino set
+     * @param player    the player
+     */
+    void tray(DominoSet dominoSet, Player player) {
+        if (quiet) {
+            return;
+        }
+        buffer.append("Tray: [");
+        TileBits tiles = player.getTiles();
+        int first = tiles.next(0);
+        for (int tile = first; tile >= 0; tile = tiles.next(tile + 1)) {
+            if (tile != first) {
+                buffer.append(", ");
+            }
+            appendDomino(dominoSet, DominoSet.placement(tile, false));
+        }
+        buffer.append("]\n");
+    }
+
+    /**
+     * Writes out everything rendered since the last flush and empties the buffer.
+     *
+     * @throws UncheckedIOException if the stream cannot be written
+     */
+    void flush() {
+        int length = buffer.length();
+        if (length == 0) {
+            return;
+        }
+        if (chars.length < length) {
+            chars = new char[Math.max(length, 2 * chars.length)];
+        }
+        buffer.getChars(0, length, chars, 0);
+        buffer.setLength(0);
+        try {
+            writer.write(chars, 0, length);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checks if the renderer is in quiet mode.
+     *
+     * @return {@code true} if only summary lines are written
+     */
+    boolean isQuiet() {
+        return quiet;
+    }
+
+    /**
+     * Appends a domino in the format {@code [left right]}.
+     *
+     * @param dominoSet the domino set the placement belongs to
+     * @param placement the domino and its orientation
+     */
+    private void appendDomino(DominoSet dominoSet, int placement) {
+        buffer.append('[').append(dominoSet.leftOf(placement)).append(' ')
+                .append(dominoSet.rightOf(placement)).append(']');
+    }
+}
@@ -3,6 +3,9 @@ package domino;
 /**
  * Represents a single domino tile with two numbered sides.
  *
+ * <p>The engine identifies tiles by their index in a {@link DominoSet}; Domino objects are
+ * views of a tile in a given orientation, created for display in the console and the GUI.</p>
+ *
  * @author Krishna Sedhain
  */
 public class Domino {
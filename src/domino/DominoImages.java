@@ -0,0 +1,278 @@
+package domino;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/**
+ * A sprite atlas of domino tiles for the GUI. Every tile of a set, in both orientations, is
+ * drawn procedurally into a single {@link WritableImage}: a white tile with a black border, a
+ * divider and anti-aliased pips. Each {@code ImageView} then shows the whole atlas through a
+ * viewport rectangle, so there is one image and one texture however many tiles are on
+ * screen, and no image resources at all.
+ *
+ * <p>Cells are laid out in a grid with a row per left number of dots and a column per right
+ * number of dots, so the orientation is part of the position: {@code [2|5]} and
+ * {@code [5|2]} are separate cells. Faces up to 9 use the usual 3 by 3 pip patterns; larger
+ * faces use a denser grid, so sets up to double-18 can be shown.</p>
+ *
+ * <p>The atlas is drawn once, in the constructor. The GUI builds it from {@code init()}, which
+ * JavaFX runs on the launcher thread, so the FX thread never waits on the drawing.</p>
+ *
+ * @author Krishna Sedhain
+ */
+final class DominoImages {
+
+    /**
+     * Width of a tile in pixels.
+     */
+    static final int TILE_WIDTH = 75;
+
+    /**
+     * Height of a tile in pixels.
+     */
+    static final int TILE_HEIGHT = 36;
+
+    /**
+     * Colours of the tile, as ARGB.
+     */
+    private static final int FACE = 0xFFFFFFFF;
+    private static final int INK = 0xFF000000;
+
+    /**
+     * Radius of the rounded corners in pixels.
+     */
+    private static final int CORNER = 4;
+
+    /**
+     * Centres of the 3 by 3 pip grid, as fractions of a face.
+     */
+    private static final double[] GRID = {0.22, 0.5, 0.78};
+
+    /**
+     * The usual pip patterns of faces 0 to 9, as (row, column) cells of the 3 by 3 grid.
+     */
+    private static final int[][] PATTERNS = {
+            {},
+            {1, 1},
+            {0, 0, 2, 2},
+            {0, 0, 1, 1, 2, 2},
+            {0, 0, 0, 2, 2, 0, 2, 2},
+            {0, 0, 0, 2, 1, 1, 2, 0, 2, 2},
+            {0, 0, 1, 0, 2, 0, 0, 2, 1, 2, 2, 2},
+            {0, 0, 1, 0, 2, 0, 1, 1, 0, 2, 1, 2, 2, 2},
+            {0, 0, 1, 0, 2, 0, 0, 1, 2, 1, 0, 2, 1, 2, 2, 2},
+            {0, 0, 1, 0, 2, 0, 0, 1, 1, 1, 2, 1, 0, 2, 1, 2, 2, 2},
+    };
+
+    /**
+     * Number of unique dot values.
+     */
+    private final int dominoRange;
+
+    /**
+     * The atlas holding every tile.
+     */
+    private final WritableImage atlas;
+
+    /**
+     * Viewport of every tile in the atlas, indexed by {@code left * dominoRange + right}.
+     */
+    private final Rectangle2D[] viewports;
+
+    /**
+     * Draws the atlas of a domino set.
+     *
+     * @param maxDots the maximum number of dots for any side of a domino
+     */
+    DominoImages(int maxDots) {
+        if (maxDots < 0) {
+            throw new IllegalArgumentException("Maximum dots cannot be negative.");
+        }
+        this.dominoRange = maxDots + 1;
+        int width = dominoRange * TILE_WIDTH;
+        int height = dominoRange * TILE_HEIGHT;
+        int[] pixels = new int[width * height];
+        this.viewports = new Rectangle2D[dominoRange * dominoRange];
+        for (int left = 0; left < dominoRange; left++) {
+            for (int right = 0; right < dominoRange; right++) {
+                int x = right * TILE_WIDTH;
+                int y = left * TILE_HEIGHT;
+                drawTile(pixels, width, x, y, left, right);
+                viewports[left * dominoRange + right] = new Rectangle2D(x, y, TILE_WIDTH, TILE_HEIGHT);
+            }
+        }
+        this.atlas = new WritableImage(width, height);
+        atlas.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+    }
+
+    /**
+     * Creates a view of a tile as it is shown. Every view shares the atlas.
+     *
+     * @param left  the dots on the left of the tile
+     * @param right the dots on the right of the tile
+     * @return a new image view showing the tile
+     */
+    ImageView newView(int left, int right) {
+        ImageView view = new ImageView(atlas);
+        view.setViewport(viewport(left, right));
+        return view;
+    }
+
+    /**
+     * Retrieves the cell of a tile in the atlas. The rectangles are shared, so views can be
+     * pointed at another tile without allocating.
+     *
+     * @param left  the dots on the left of the tile
+     * @param right the dots on the right of the tile
+     * @return the viewport of the tile
+     */
+    Rectangle2D viewport(int left, int right) {
+        return viewports[left * dominoRange + right];
+    }
+
+    /**
+     * Retrieves the atlas holding every tile.
+     *
+     * @return the atlas image
+     */
+    Image getAtlas() {
+        return atlas;
+    }
+
+    /**
+     * Draws one tile into its cell of the atlas.
+     *
+     * @param pixels the atlas pixels
+     * @param stride the width of the atlas
+     * @param x      the left edge of the cell
+     * @param y      the top edge of the cell
+     * @param left   the dots on the left face
+     * @param right  the dots on the right face
+     */
+    private static void drawTile(int[] pixels, int stride, int x, int y, int left, int right) {
+        for (int row = 0; row < TILE_HEIGHT; row++) {
+            for (int column = 0; column < TILE_WIDTH; column++) {
+                int color;
+                if (outsideCorner(column, row)) {
+                    continue;
+                } else if (row == 0 || row == TILE_HEIGHT - 1 || column == 0 || column == TILE_WIDTH - 1
+                        || onCornerEdge(column, row)) {
+                    color = INK;
+                } else if (column == TILE_WIDTH / 2 && row >= CORNER && row < TILE_HEIGHT - CORNER) {
+                    color = INK;
+                } else {
+                    color = FACE;
+                }
+                pixels[(y + row) * stride + x + column] = color;
+            }
+        }
+        int faceWidth = TILE_WIDTH / 2;
+        drawPips(pixels, stride, x, y, faceWidth, left);
+        drawPips(pixels, stride, x + faceWidth + 1, y, faceWidth, right);
+    }
+
+    /**
+     * Checks if a pixel of a tile lies outside its rounded corners.
+     *
+     * @param column the pixel column within the tile
+     * @param row    the pixel row within the tile
+     * @return {@code true} if the pixel stays transparent
+     */
+    private static boolean outsideCorner(int column, int row) {
+        return cornerDistance(column, row) > CORNER + 0.5;
+    }
+
+    /**
+     * Checks if a pixel of a tile lies on the border of a rounded corner.
+     *
+     * @param column the pixel column within the tile
+     * @param row    the pixel row within the tile
+     * @return {@code true} if the pixel belongs to the border
+     */
+    private static boolean onCornerEdge(int column, int row) {
+        return cornerDistance(column, row) > CORNER - 0.5;
+    }
+
+    /**
+     * Computes the distance of a pixel from the centre of the nearest corner arc, or 0 for
+     * pixels that are not in a corner.
+     *
+     * @param column the pixel column within the tile
+     * @param row    the pixel row within the tile
+     * @return the distance in pixels
+     */
+    private static double cornerDistance(int column, int row) {
+        double dx = column < CORNER ? CORNER - column : column > TILE_WIDTH - 1 - CORNER ? column - (TILE_WIDTH - 1 - CORNER) : 0;
+        double dy = row < CORNER ? CORNER - row : row > TILE_HEIGHT - 1 - CORNER ? row - (TILE_HEIGHT - 1 - CORNER) : 0;
+        return dx == 0 || dy == 0 ? 0 : Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Draws the pips of one face.
+     *
+     * @param pixels the atlas pixels
+     * @param stride the width of the atlas
+     * @param x      the left edge of the face
+     * @param y      the top edge of the face
+     * @param size   the width of the face
+     * @param dots   the number of pips
+     */
+    private static void drawPips(int[] pixels, int stride, int x, int y, int size, int dots) {
+        if (dots < PATTERNS.length) {
+            int[] cells = PATTERNS[dots];
+            double radius = size * 0.1;
+            for (int i = 0; i < cells.length; i += 2) {
+                drawPip(pixels, stride, x + GRID[cells[i + 1]] * size, y + GRID[cells[i]] * TILE_HEIGHT, radius);
+            }
+            return;
+        }
+        // Larger faces: as many columns as the square root, the shorter row in the middle.
+        int columns = (int) Math.ceil(Math.sqrt(dots));
+        int rows = (dots + columns - 1) / columns;
+        int shortRow = rows / 2;
+        int shortCount = dots - (rows - 1) * columns;
+        double step = 0.76 / Math.max(rows, columns);
+        double radius = size * step * 0.34;
+        for (int row = 0; row < rows; row++) {
+            int count = row == shortRow ? shortCount : columns;
+            double cy = 0.5 + (row - (rows - 1) / 2.0) * step;
+            for (int column = 0; column < count; column++) {
+                double cx = 0.5 + (column - (count - 1) / 2.0) * step;
+                drawPip(pixels, stride, x + cx * size, y + cy * TILE_HEIGHT, radius);
+            }
+        }
+    }
+
+    /**
+     * Draws an anti-aliased pip, blending the ink over the face by pixel coverage.
+     *
+     * @param pixels  the atlas pixels
+     * @param stride  the width of the atlas
+     * @param centerX the horizontal centre in atlas pixels
+     * @param centerY the vertical centre in atlas pixels
+     * @param radius  the radius in pixels
+     */
+    private static void drawPip(int[] pixels, int stride, double centerX, double centerY, double radius) {
+        int fromX = (int) Math.floor(centerX - radius - 1);
+        int toX = (int) Math.ceil(centerX + radius + 1);
+        int fromY = (int) Math.floor(centerY - radius - 1);
+        int toY = (int) Math.ceil(centerY + radius + 1);
+        for (int py = fromY; py <= toY; py++) {
+            for (int px = fromX; px <= toX; px++) {
+                double dx = px + 0.5 - centerX;
+                double dy = py + 0.5 - centerY;
+                double coverage = Math.min(1, Math.max(0, radius + 0.5 - Math.sqrt(dx * dx + dy * dy)));
+                if (coverage > 0) {
+                    int shade = (int) Math.round(255 * (1 - coverage));
+                    int index = py * stride + px;
+                    int current = pixels[index] & 0xFF;
+                    shade = Math.min(shade, current);
+                    pixels[index] = 0xFF000000 | shade << 16 | shade << 8 | shade;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package domino;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable table of every tile in a double-N domino set. Each tile is identified by a
+ * small int index into the table, so the engine, the board and the players can work on
+ * plain ints instead of {@link Domino} objects.
+ *
+ * <p>Tiles are numbered in the order the set is generated: [0 0], [0 1], ..., [0 N], [1 1], ...
+ * The unflipped orientation of a tile has the smaller number of dots on the left. The
+ * orientation of a tile on the board is kept separately in a <em>placement</em>, which is
+ * {@code tile << 1 | flipped}.</p>
+ *
+ * <p>Sets are interned: {@link #of(int)} returns the same instance for the same maximum
+ * number of dots, so a set can be shared freely between games and threads.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public final class DominoSet {
+
+    /**
+     * Interned sets by maximum number of dots.
+     */
+    private static final ConcurrentHashMap<Integer, DominoSet> SETS = new ConcurrentHashMap<>();
+
+    /**
+     * Number of unique dot values (maxDots + 1).
+     */
+    private final int dominoRange;
+
+    /**
+     * Number of tiles in the set.
+     */
+    private final int size;
+
+    /**
+     * Smaller number of dots of each tile.
+     */
+    private final int[] low;
+
+    /**
+     * Larger number of dots of each tile.
+     */
+    private final int[] high;
+
+    /**
+     * Number of longs needed for a bitset over all tiles.
+     */
+    private final int words;
+
+    /**
+     * For every number of dots, a bitset of the tiles that have it on either side.
+     */
+    private final long[][] pipMasks;
+
+    /**
+     * Tile index for every (left, right) pair, indexed by {@code left * dominoRange + right}.
+     */
+    private final int[] index;
+
+    /**
+     * Builds the table for a set with the given maximum number of dots.
+     *
+     * @param maxDots the maximum number of dots on one side of a domino
+     */
+    private DominoSet(int maxDots) {
+        this.dominoRange = maxDots + 1;
+        this.size = dominoRange * (dominoRange + 1) / 2;
+        this.low = new int[size];
+        this.high = new int[size];
+        this.index = new int[dominoRange * dominoRange];
+        this.words = (size + 63) >>> 6;
+        this.pipMasks = new long[dominoRange][words];
+        int tile = 0;
+        for (int i = 0; i < dominoRange; i++) {
+            for (int j = i; j < dominoRange; j++) {
+                low[tile] = i;
+                high[tile] = j;
+                index[i * dominoRange + j] = tile;
+                index[j * dominoRange + i] = tile;
+                pipMasks[i][tile >>> 6] |= 1L << tile;
+                pipMasks[j][tile >>> 6] |= 1L << tile;
+                tile++;
+            }
+        }
+    }
+
+    /**
+     * Returns the interned set with the given maximum number of dots.
+     *
+     * @param maxDots the maximum number of dots on one side of a domino
+     * @return the shared set
+     */
+    public static DominoSet of(int maxDots) {
+        if (maxDots < 0) {
+            throw new IllegalArgumentException("Maximum dots must be non-negative.");
+        }
+        return SETS.computeIfAbsent(maxDots, DominoSet::new);
+    }
+
+    /**
+     * Builds a placement from a tile and its orientation.
+     *
+     * @param tile    the tile index
+     * @param flipped {@code true} if the larger number of dots is on the left
+     * @return the placement
+     */
+    public static int placement(int tile, boolean flipped) {
+        return tile << 1 | (flipped ? 1 : 0);
+    }
+
+    /**
+     * Retrieves the tile of a placement.
+     *
+     * @param placement the placement
+     * @return the tile index
+     */
+    public static int tileOf(int placement) {
+        return placement >>> 1;
+    }
+
+    /**
+     * Checks if a placement is flipped.
+     *
+     * @param placement the placement
+     * @return {@code true} if the larger number of dots is on the left
+     */
+    public static boolean isFlipped(int placement) {
+        return (placement & 1) != 0;
+    }
+
+    /**
+     * Retrieves the number of dots on the left side of a placement.
+     *
+     * @param placement the placement
+     * @return the number of dots on the left side
+     */
+    public int leftOf(int placement) {
+        int tile = placement >>> 1;
+        return (placement & 1) == 0 ? low[tile] : high[tile];
+    }
+
+    /**
+     * Retrieves the number of dots on the right side of a placement.
+     *
+     * @param placement the placement
+     * @return the number of dots on the right side
+     */
+    public int rightOf(int placement) {
+        int tile = placement >>> 1;
+        return (placement & 1) == 0 ? high[tile] : low[tile];
+    }
+
+    /**
+     * Retrieves the smaller number of dots of a tile.
+     *
+     * @param tile the tile index
+     * @return the smaller number of dots
+     */
+    public int low(int tile) {
+        return low[tile];
+    }
+
+    /**
+     * Retrieves the larger number of dots of a tile.
+     *
+     * @param tile the tile index
+     * @return the larger number of dots
+     */
+    public int high(int tile) {
+        return high[tile];
+    }
+
+    /**
+     * Retrieves the total number of dots on a tile.
+     *
+     * @param tile the tile index
+     * @return the sum of both sides
+     */
+    public int pips(int tile) {
+        return low[tile] + high[tile];
+    }
+
+    /**
+     * Checks if a tile contains the given number of dots on either side.
+     *
+     * @param tile the tile index
+     * @param dots the number of dots
+     * @return {@code true} if either side has that number of dots
+     */
+    public boolean contains(int tile, int dots) {
+        return low[tile] == dots || high[tile] == dots;
+    }
+
+    /**
+     * Retrieves the bitset of all tiles with the given number of dots on either side.
+     * The returned array is shared and must not be modified.
+     *
+     * @param dots the number of dots
+     * @return the pip mask, with {@link #words()} longs
+     */
+    public long[] pipMask(int dots) {
+        return pipMasks[dots];
+    }
+
+    /**
+     * Retrieves the number of longs needed for a bitset over all tiles of the set.
+     *
+     * @return the number of words
+     */
+    public int words() {
+        return words;
+    }
+
+    /**
+     * Looks up the tile with the given numbers of dots, in either order.
+     *
+     * @param left  the number of dots on one side
+     * @param right the number of dots on the other side
+     * @return the tile index
+     */
+    public int indexOf(int left, int right) {
+        return index[left * dominoRange + right];
+    }
+
+    /**
+     * Creates a {@link Domino} view of a placement for display.
+     *
+     * @param placement the placement
+     * @return a new domino with the placement's dots
+     */
+    public Domino toDomino(int placement) {
+        return new Domino(leftOf(placement), rightOf(placement));
+    }
+
+    /**
+     * Retrieves the number of tiles in the set.
+     *
+     * @return the number of tiles
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the domino range which is (maxDots + 1).
+     *
+     * @return the domino range
+     */
+    public int getDominoRange() {
+        return dominoRange;
+    }
+}
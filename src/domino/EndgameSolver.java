@@ -0,0 +1,580 @@
+package domino;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * An exact solver for the end of the game. Once the boneyard is empty, every tile the
+ * player cannot see must be in the opponent's tray, so a player who tracks the played tiles
+ * has perfect information. From then on this strategy searches the whole rest of the game
+ * with alpha-beta and plays the move with the best guaranteed result. Before that it leaves
+ * the choice to a fallback strategy.
+ *
+ * <p>Results are scored first by the outcome and then by the dot margin: a win is worth
+ * {@code 1000} plus the dots left in the loser's tray, and a blocked game the difference in
+ * dots plus or minus {@code 1000}. The solver therefore wins whenever it can, and then by
+ * as much as it can. Positions are memoized in a compact hashed table of one {@code long}
+ * key and one {@code int} entry per slot, with the score, the kind of bound, the best move
+ * and the tiles left packed into the int.</p>
+ *
+ * <p>A node limit keeps pathological positions from stalling the game; when it is hit the
+ * fallback decides instead, as it does once the thread is interrupted. So it does under
+ * {@link RuleSet#AllFives}, where plays score points and the dot margin alone does not
+ * decide the game. An instance must not be shared between threads.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public class EndgameSolver implements Strategy {
+
+    /**
+     * Score of a won game, before the dot margin is added.
+     */
+    private static final int WIN = 1000;
+
+    /**
+     * Larger than any score.
+     */
+    private static final int INFINITY = 1 << 13;
+
+    /**
+     * Bound kinds stored in the table.
+     */
+    private static final int EXACT = 0;
+    private static final int LOWER = 1;
+    private static final int UPPER = 2;
+
+    /**
+     * Seed of the Zobrist keys, so hashes are the same in every run.
+     */
+    private static final long ZOBRIST_SEED = 0xe2d6_a3e5L;
+
+    /**
+     * The thread's interrupt flag is checked whenever the node count has these bits clear;
+     * an interrupted search gives up like one that hit the node limit.
+     */
+    private static final long INTERRUPT_MASK = 1023;
+
+    /**
+     * The strategy used while the boneyard is not empty, or when the node limit is hit.
+     */
+    private final Strategy fallback;
+
+    /**
+     * Maximum number of nodes searched per move.
+     */
+    private final long maxNodes;
+
+    /**
+     * Position hash of every table slot.
+     */
+    private final long[] keys;
+
+    /**
+     * Packed score (bits 18-31), bound (bits 16-17), tiles left (bits 10-15) and best move
+     * plus one (bits 0-9) of every table slot; 0 marks an empty slot.
+     */
+    private final int[] entries;
+
+    /**
+     * Mask selecting the first slot of a bucket from a hash.
+     */
+    private final int mask;
+
+    /**
+     * The domino set the keys and buffers were built for.
+     */
+    private DominoSet dominoSet;
+
+    /**
+     * The rules the buffers and the table were built for.
+     */
+    private Rules rules;
+
+    /**
+     * The compiled matching predicate of the rules.
+     */
+    private MoveTable moveTable;
+
+    /**
+     * The trays, indexed by 0 for the solving player and 1 for the opponent.
+     */
+    private final TileBits[] trays = new TileBits[2];
+
+    /**
+     * Dots in each tray.
+     */
+    private final int[] pips = new int[2];
+
+    /**
+     * Zobrist keys of a tile in each tray.
+     */
+    private final long[][] trayKeys = new long[2][];
+
+    /**
+     * Zobrist keys of the smaller and the larger open end.
+     */
+    private long[] lowEndKeys;
+    private long[] highEndKeys;
+
+    /**
+     * Zobrist key toggled when the opponent is to move, and when a pass was just made.
+     */
+    private long opponentKey;
+    private long passKey;
+
+    /**
+     * Hash of both trays, updated with every move.
+     */
+    private long tileHash;
+
+    /**
+     * Open ends of the line of play.
+     */
+    private int left;
+    private int right;
+
+    /**
+     * Index of the tray to move and whether the previous turn was a pass.
+     */
+    private int mover;
+    private boolean passed;
+
+    /**
+     * Legal moves generated at every ply.
+     */
+    private int[][] plyMoves;
+
+    /**
+     * Nodes searched for the current move.
+     */
+    private long nodes;
+
+    /**
+     * Set once the node limit is hit.
+     */
+    private boolean aborted;
+
+    /**
+     * Score of the last solved position, from the solving player's point of view.
+     */
+    private int lastScore;
+
+    /**
+     * Time spent on the last solve in nanoseconds.
+     */
+    private long lastNanos;
+
+    /**
+     * Constructs a solver with a table of 2^20 slots and a limit of 20 million nodes.
+     *
+     * @param fallback the strategy used while the boneyard is not empty
+     */
+    public EndgameSolver(Strategy fallback) {
+        this(fallback, 20, 20_000_000L);
+    }
+
+    /**
+     * Constructs a solver.
+     *
+     * @param fallback  the strategy used while the boneyard is not empty, or when the node
+     *                  limit is hit
+     * @param tableBits base-2 logarithm of the number of table slots, from 1 to 28
+     * @param maxNodes  maximum number of nodes searched per move
+     */
+    public EndgameSolver(Strategy fallback, int tableBits, long maxNodes) {
+        if (tableBits < 1 || tableBits > 28) {
+            throw new IllegalArgumentException("Table size must be between 2^1 and 2^28 slots.");
+        }
+        if (maxNodes < 1) {
+            throw new IllegalArgumentException("Node limit must be positive.");
+        }
+        this.fallback = fallback;
+        this.maxNodes = maxNodes;
+        this.keys = new long[1 << tableBits];
+        this.entries = new int[1 << tableBits];
+        this.mask = (1 << tableBits) - 2;
+    }
+
+    /**
+     * Plays the exact best move once the boneyard is empty, and the fallback's move before.
+     *
+     * @param engine the game
+     * @param moves  the legal moves
+     * @param count  the number of legal moves
+     * @return the index of the chosen move
+     */
+    @Override
+    public int chooseMove(GameEngine engine, int[] moves, int count) {
+        if (count == 1) {
+            return 0;
+        }
+        if (engine.getBoard().getBoneyardSize() == 0) {
+            int best = solve(engine, moves, count);
+            if (best >= 0) {
+                return best;
+            }
+        }
+        return fallback.chooseMove(engine, moves, count);
+    }
+
+    /**
+     * Solves a position with an empty boneyard.
+     *
+     * @param engine the game, with the solving player to move
+     * @param moves  the legal moves
+     * @param count  the number of legal moves, at least one
+     * @return the index of the best move, or -1 if the boneyard is not empty, the rules score
+     *         plays or the node limit was hit
+     */
+    public int solve(GameEngine engine, int[] moves, int count) {
+        long start = System.nanoTime();
+        if (engine.getBoard().getBoneyardSize() > 0 || engine.getRules().scoresPlays()) {
+            return -1;
+        }
+        load(engine);
+        nodes = 0;
+        aborted = false;
+        int best = -1;
+        int alpha = -INFINITY;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int oldLeft = left;
+            int oldRight = right;
+            boolean oldPassed = passed;
+            play(move);
+            int score = trays[1 - mover].isEmpty() ? WIN + pips[mover] : -search(-INFINITY, -alpha, 1);
+            undo(move, oldLeft, oldRight, oldPassed);
+            if (aborted) {
+                lastNanos = System.nanoTime() - start;
+                return -1;
+            }
+            if (score > alpha) {
+                alpha = score;
+                best = i;
+            }
+        }
+        lastScore = alpha;
+        lastNanos = System.nanoTime() - start;
+        return best;
+    }
+
+    /**
+     * Retrieves the score of the last solved position.
+     *
+     * @return the score from the solving player's point of view; positive scores are wins
+     */
+    public int getLastScore() {
+        return lastScore;
+    }
+
+    /**
+     * Retrieves the number of nodes searched for the last move.
+     *
+     * @return the number of nodes
+     */
+    public long getLastNodes() {
+        return nodes;
+    }
+
+    /**
+     * Retrieves the time spent on the last solve.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+    /**
+     * Copies the position out of the engine. The opponent's tray is rebuilt from the tiles
+     * the solving player has not seen, so only public information and the own tray are used.
+     *
+     * @param engine the game
+     */
+    private void load(GameEngine engine) {
+        if (engine.getRules() != rules) {
+            allocate(engine.getRules());
+        }
+        DominoSet set = engine.getDominoSet();
+        Board board = engine.getBoard();
+        TileBits own = trays[0];
+        TileBits opponent = trays[1];
+        own.copyFrom(engine.getPlayer(engine.getCurrentPlayer()).getTiles());
+        opponent.clear();
+        for (int tile = 0; tile < set.size(); tile++) {
+            if (!own.contains(tile)) {
+                opponent.add(tile);
+            }
+        }
+        for (int i = 0; i < board.getPlayedCount(); i++) {
+            opponent.remove(DominoSet.tileOf(board.getPlacement(i)));
+        }
+        tileHash = 0;
+        for (int side = 0; side < 2; side++) {
+            TileBits tray = trays[side];
+            for (int tile = tray.next(0); tile >= 0; tile = tray.next(tile + 1)) {
+                tileHash ^= trayKeys[side][tile];
+            }
+            pips[side] = tray.pipTotal(set);
+        }
+        left = board.getPlayedCount() == 0 ? -1 : board.getLeftEnd();
+        right = board.getPlayedCount() == 0 ? -1 : board.getRightEnd();
+        mover = 0;
+        passed = engine.getConsecutivePasses() > 0;
+    }
+
+    /**
+     * Builds the keys and buffers for the domino set of some rules.
+     *
+     * @param gameRules the rules of the game
+     */
+    private void allocate(Rules gameRules) {
+        if (rules != null) {
+            // Entries of the old set or rules would collide with the new keys.
+            Arrays.fill(entries, 0);
+        }
+        rules = gameRules;
+        moveTable = gameRules.getMoveTable();
+        DominoSet set = moveTable.getDominoSet();
+        dominoSet = set;
+        trays[0] = new TileBits(set);
+        trays[1] = new TileBits(set);
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        trayKeys[0] = random.longs(set.size()).toArray();
+        trayKeys[1] = random.longs(set.size()).toArray();
+        lowEndKeys = random.longs(set.getDominoRange() + 1L).toArray();
+        highEndKeys = random.longs(set.getDominoRange() + 1L).toArray();
+        opponentKey = random.nextLong();
+        passKey = random.nextLong();
+        // Every ply plays a tile or passes, and there are never two passes in a row.
+        plyMoves = new int[2 * set.size() + 2][4 * set.size()];
+    }
+
+    /**
+     * Negamax alpha-beta search of the position.
+     *
+     * @param alpha the lower bound of the window, from the mover's point of view
+     * @param beta  the upper bound of the window, from the mover's point of view
+     * @param ply   the distance from the root
+     * @return the score from the mover's point of view
+     */
+    private int search(int alpha, int beta, int ply) {
+        if (++nodes > maxNodes || (nodes & INTERRUPT_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+            aborted = true;
+            return 0;
+        }
+        long key = key();
+        int slot = find(key);
+        int tableMove = -1;
+        if (slot >= 0) {
+            int entry = entries[slot];
+            int score = entry >> 18;
+            int bound = (entry >>> 16) & 3;
+            if (bound == EXACT) {
+                return score;
+            } else if (bound == LOWER) {
+                alpha = Math.max(alpha, score);
+            } else {
+                beta = Math.min(beta, score);
+            }
+            if (alpha >= beta) {
+                return score;
+            }
+            tableMove = (entry & 0x3ff) - 1;
+        }
+
+        int[] moves = plyMoves[ply];
+        int count = generateMoves(moves);
+        if (count == 0) {
+            if (passed) {
+                return blocked();
+            }
+            passed = true;
+            mover = 1 - mover;
+            int score = -search(-beta, -alpha, ply + 1);
+            mover = 1 - mover;
+            passed = false;
+            return score;
+        }
+        orderMoves(moves, count, tableMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = -1;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int oldLeft = left;
+            int oldRight = right;
+            boolean oldPassed = passed;
+            play(move);
+            int score = trays[1 - mover].isEmpty() ? WIN + pips[mover] : -search(-beta, -alpha, ply + 1);
+            undo(move, oldLeft, oldRight, oldPassed);
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+            }
+            if (best > alpha) {
+                alpha = best;
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        int bound = best <= originalAlpha ? UPPER : best >= beta ? LOWER : EXACT;
+        store(key, best, bound, bestMove);
+        return best;
+    }
+
+    /**
+     * Lists the legal moves of the player to move, leaving out the mirror moves when both
+     * ends are equal.
+     *
+     * @param moves the buffer to fill
+     * @return the number of moves
+     */
+    private int generateMoves(int[] moves) {
+        return moveTable.distinctMoves(trays[mover], left, right, moves);
+    }
+
+    /**
+     * Moves the table's best move to the front and sorts the rest heaviest first, since
+     * getting rid of dots early is usually right.
+     *
+     * @param moves     the moves
+     * @param count     the number of moves
+     * @param tableMove the best move found earlier, or -1
+     */
+    private void orderMoves(int[] moves, int count, int tableMove) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int key = move == tableMove ? Integer.MAX_VALUE : dominoSet.pips(Moves.tile(move));
+            int j = i - 1;
+            while (j >= 0 && (moves[j] == tableMove ? Integer.MAX_VALUE : dominoSet.pips(Moves.tile(moves[j]))) < key) {
+                moves[j + 1] = moves[j];
+                j--;
+            }
+            moves[j + 1] = move;
+        }
+    }
+
+    /**
+     * Plays a move of the player to move and hands the turn over.
+     *
+     * @param move the move
+     */
+    private void play(int move) {
+        int tile = Moves.tile(move);
+        int placement = Moves.placement(move);
+        trays[mover].remove(tile);
+        pips[mover] -= dominoSet.pips(tile);
+        tileHash ^= trayKeys[mover][tile];
+        if (left < 0) {
+            left = dominoSet.leftOf(placement);
+            right = dominoSet.rightOf(placement);
+        } else if (Moves.side(move) == Side.Left) {
+            left = dominoSet.leftOf(placement);
+        } else {
+            right = dominoSet.rightOf(placement);
+        }
+        passed = false;
+        mover = 1 - mover;
+    }
+
+    /**
+     * Takes back a move.
+     *
+     * @param move      the move
+     * @param oldLeft   the left end before the move
+     * @param oldRight  the right end before the move
+     * @param oldPassed whether the turn before the move was a pass
+     */
+    private void undo(int move, int oldLeft, int oldRight, boolean oldPassed) {
+        mover = 1 - mover;
+        int tile = Moves.tile(move);
+        trays[mover].add(tile);
+        pips[mover] += dominoSet.pips(tile);
+        tileHash ^= trayKeys[mover][tile];
+        left = oldLeft;
+        right = oldRight;
+        passed = oldPassed;
+    }
+
+    /**
+     * Scores a game that ended with both players passing.
+     *
+     * @return the score from the mover's point of view
+     */
+    private int blocked() {
+        int margin = pips[1 - mover] - pips[mover];
+        return margin > 0 ? WIN + margin : margin < 0 ? -WIN + margin : 0;
+    }
+
+    /**
+     * Hashes the current position.
+     *
+     * @return the position hash
+     */
+    private long key() {
+        int empty = dominoSet.getDominoRange();
+        int low = left < 0 ? empty : Math.min(left, right);
+        int high = left < 0 ? empty : Math.max(left, right);
+        return tileHash ^ lowEndKeys[low] ^ highEndKeys[high] ^ (mover == 1 ? opponentKey : 0)
+                ^ (passed ? passKey : 0);
+    }
+
+    /**
+     * Looks up a position in the table.
+     *
+     * @param key the position hash
+     * @return the slot holding the position, or -1 if it is not in the table
+     */
+    private int find(long key) {
+        int slot = (int) key & mask;
+        if (entries[slot] != 0 && keys[slot] == key) {
+            return slot;
+        }
+        if (entries[slot + 1] != 0 && keys[slot + 1] == key) {
+            return slot + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a result. Of the two slots of a bucket, the one holding the position or the
+     * smaller subtree is replaced, so results for positions with many tiles left survive.
+     *
+     * @param key      the position hash
+     * @param score    the score
+     * @param bound    {@code EXACT}, {@code LOWER} or {@code UPPER}
+     * @param bestMove the best move, or -1
+     */
+    private void store(long key, int score, int bound, int bestMove) {
+        int tiles = Math.min(63, trays[0].size() + trays[1].size());
+        int first = (int) key & mask;
+        int slot;
+        if (keys[first] == key || entries[first] == 0) {
+            slot = first;
+        } else if (keys[first + 1] == key || entries[first + 1] == 0) {
+            slot = first + 1;
+        } else {
+            slot = tilesOf(first) <= tilesOf(first + 1) ? first : first + 1;
+        }
+        keys[slot] = key;
+        // An exact score of 0 with no move would look empty, so every entry has bit 10 or
+        // higher set: positions in the table always have at least one tile left.
+        entries[slot] = score << 18 | bound << 16 | Math.max(1, tiles) << 10 | (bestMove + 1);
+    }
+
+    /**
+     * Retrieves the number of tiles left in the position of a slot.
+     *
+     * @param slot the slot
+     * @return the number of tiles, at most 63
+     */
+    private int tilesOf(int slot) {
+        return (entries[slot] >>> 10) & 0x3f;
+    }
+}
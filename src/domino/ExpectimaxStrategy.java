@@ -0,0 +1,768 @@
+package domino;
+
+import java.util.SplittableRandom;
+
+/**
+ * A search-based computer player. It looks ahead with depth-limited expectimax over what it
+ * cannot see, the opponent's tray and the boneyard, using only its own tray and the public
+ * state of the game.
+ *
+ * <p>Every tile that is neither in the player's tray nor on the board is unknown and is
+ * equally likely to be in the opponent's tray or in the boneyard. The search has three kinds
+ * of nodes:</p>
+ * <ul>
+ *     <li>At the player's own turn it takes the best legal move. If there is none it draws,
+ *     averaging over every unknown tile, or passes when the boneyard is empty.</li>
+ *     <li>At the opponent's turn, the replies are sorted from best to worst for the opponent.
+ *     Each is weighted by the hypergeometric probability that it is the best tile the
+ *     opponent holds. The remaining probability goes to the opponent having no play at all,
+ *     in which case it draws or passes. What the opponent is shown not to hold is not
+ *     carried further down the tree.</li>
+ *     <li>At the depth limit the position is scored by the difference in tray sizes and in
+ *     remaining dots, counting the opponent's tray at the average of the unknown tiles.</li>
+ * </ul>
+ *
+ * <p>Positions are hashed with Zobrist keys over the player's tray, the played tiles, the
+ * two open ends, the tray and boneyard sizes, the passes and the player to move, and kept in
+ * a bounded {@link TranspositionTable}. The search deepens one ply at a time until the time
+ * budget or the maximum depth is reached. The best move so far is searched first and the
+ * rest heaviest first, so an interrupted iteration still improves on the previous one.</p>
+ *
+ * <p>Moves are generated with the game's {@link Rules}, and under rules without drawing a
+ * blocked player passes. Points scored by plays under {@link RuleSet#AllFives} are not
+ * modelled; the search still plays for going out with few dots left.</p>
+ *
+ * <p>All buffers are allocated when the strategy first sees a domino set, so an instance
+ * must not be shared between threads.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public class ExpectimaxStrategy implements Strategy {
+
+    /**
+     * Score of a won game, before the dot margin is added.
+     */
+    private static final double WIN = 10_000;
+
+    /**
+     * Number of nodes searched between two checks of the clock.
+     */
+    private static final int CLOCK_INTERVAL = 1024;
+
+    /**
+     * Seed of the Zobrist keys, so hashes are the same in every run.
+     */
+    private static final long ZOBRIST_SEED = 0x5eed_d0d1L;
+
+    /**
+     * Time budget per move in nanoseconds.
+     */
+    private final long budgetNanos;
+
+    /**
+     * Maximum search depth in plies, draws included.
+     */
+    private final int maxDepth;
+
+    /**
+     * Search results shared between moves.
+     */
+    private final TranspositionTable table;
+
+    /**
+     * The domino set the buffers were built for.
+     */
+    private DominoSet dominoSet;
+
+    /**
+     * The rules the buffers and the table were built for.
+     */
+    private Rules rules;
+
+    /**
+     * The compiled matching predicate of the rules.
+     */
+    private MoveTable moveTable;
+
+    /**
+     * {@code true} if a blocked player draws; {@code false} if it passes.
+     */
+    private boolean drawing;
+
+    /**
+     * The searching player's tray.
+     */
+    private TileBits hand;
+
+    /**
+     * Tiles in neither the searching player's tray nor on the board.
+     */
+    private TileBits unknown;
+
+    /**
+     * Zobrist keys of a tile in the searching player's tray.
+     */
+    private long[] handKeys;
+
+    /**
+     * Zobrist keys of a tile on the board.
+     */
+    private long[] playedKeys;
+
+    /**
+     * Zobrist keys of the smaller open end; the last entry stands for an empty board.
+     */
+    private long[] lowEndKeys;
+
+    /**
+     * Zobrist keys of the larger open end; the last entry stands for an empty board.
+     */
+    private long[] highEndKeys;
+
+    /**
+     * Zobrist keys of the opponent's tray size.
+     */
+    private long[] opponentKeys;
+
+    /**
+     * Zobrist keys of the boneyard size.
+     */
+    private long[] boneyardKeys;
+
+    /**
+     * Zobrist keys of the number of consecutive passes.
+     */
+    private long[] passKeys;
+
+    /**
+     * Zobrist key toggled when it is the searching player's turn.
+     */
+    private long moverKey;
+
+    /**
+     * Hash of the tray and the played tiles, updated with every move.
+     */
+    private long tileHash;
+
+    /**
+     * Open ends of the line of play, or -1 while the board is empty.
+     */
+    private int left;
+    private int right;
+
+    /**
+     * Public counts of the searched position.
+     */
+    private int opponentCount;
+    private int boneyardSize;
+    private int passes;
+
+    /**
+     * Dots in the searching player's tray and in the unknown tiles.
+     */
+    private int handPips;
+    private int unknownPips;
+
+    /**
+     * Legal moves generated at every ply.
+     */
+    private int[][] plyMoves;
+
+    /**
+     * Values of the opponent's replies at every ply.
+     */
+    private double[][] plyValues;
+
+    /**
+     * Time at which the current search must stop.
+     */
+    private long deadline;
+
+    /**
+     * Number of nodes searched for the current move.
+     */
+    private long nodes;
+
+    /**
+     * Set once the time budget is exhausted.
+     */
+    private boolean aborted;
+
+    /**
+     * Set when some leaf of the current iteration was scored heuristically.
+     */
+    private boolean depthLimited;
+
+    /**
+     * Deepest iteration completed for the last move.
+     */
+    private int lastDepth;
+
+    /**
+     * Constructs a strategy with a 50 ms budget per move, a maximum depth of 16 plies and a
+     * table of 2^18 slots.
+     */
+    public ExpectimaxStrategy() {
+        this(50_000_000L, 16, 18);
+    }
+
+    /**
+     * Constructs a strategy.
+     *
+     * @param budgetNanos time budget per move in nanoseconds; {@code Long.MAX_VALUE} searches
+     *                    every move to the maximum depth, which makes games reproducible
+     * @param maxDepth    maximum search depth in plies, from 1 to 200
+     * @param tableBits   base-2 logarithm of the number of transposition table slots
+     */
+    public ExpectimaxStrategy(long budgetNanos, int maxDepth, int tableBits) {
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("Time budget must be positive.");
+        }
+        if (maxDepth < 1 || maxDepth > 200) {
+            throw new IllegalArgumentException("Maximum depth must be between 1 and 200.");
+        }
+        this.budgetNanos = budgetNanos;
+        this.maxDepth = maxDepth;
+        this.table = new TranspositionTable(tableBits);
+    }
+
+    /**
+     * Searches the position and picks the move with the best expected outcome.
+     *
+     * @param engine the game
+     * @param moves  the legal moves
+     * @param count  the number of legal moves
+     * @return the index of the chosen move
+     */
+    @Override
+    public int chooseMove(GameEngine engine, int[] moves, int count) {
+        lastDepth = 0;
+        nodes = 0;
+        if (count == 1) {
+            return 0;
+        }
+        load(engine);
+        long now = System.nanoTime();
+        deadline = budgetNanos > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + budgetNanos;
+        aborted = false;
+        table.newSearch();
+
+        int best = 0;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            depthLimited = false;
+            int iterationBest = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < count; j++) {
+                // The previous iteration's best move first, the others in their given order.
+                int i = j == 0 ? best : j <= best ? j - 1 : j;
+                int move = moves[i];
+                int oldLeft = left;
+                int oldRight = right;
+                int oldPasses = passes;
+                playOwn(move);
+                double value = hand.isEmpty() ? win() : opponentNode(depth - 1, 1);
+                undoOwn(move, oldLeft, oldRight, oldPasses);
+                if (aborted) {
+                    break;
+                }
+                if (value > bestValue) {
+                    bestValue = value;
+                    iterationBest = i;
+                }
+            }
+            if (iterationBest >= 0) {
+                best = iterationBest;
+            }
+            if (aborted) {
+                break;
+            }
+            lastDepth = depth;
+            if (!depthLimited || System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Retrieves the deepest search completed for the last move.
+     *
+     * @return the depth in plies, or 0 if the move was forced
+     */
+    public int getLastDepth() {
+        return lastDepth;
+    }
+
+    /**
+     * Retrieves the number of nodes searched for the last move.
+     *
+     * @return the number of nodes
+     */
+    public long getLastNodes() {
+        return nodes;
+    }
+
+    /**
+     * Copies the position the current player sees out of the engine.
+     *
+     * @param engine the game
+     */
+    private void load(GameEngine engine) {
+        if (engine.getRules() != rules) {
+            allocate(engine.getRules());
+        }
+        Board board = engine.getBoard();
+        Players me = engine.getCurrentPlayer();
+        Players opponent = me == Players.Human ? Players.Computer : Players.Human;
+        hand.copyFrom(engine.getPlayer(me).getTiles());
+
+        // Everything not in the tray starts unknown; played tiles are then taken out.
+        unknown.clear();
+        tileHash = 0;
+        for (int tile = 0; tile < dominoSet.size(); tile++) {
+            if (hand.contains(tile)) {
+                tileHash ^= handKeys[tile];
+            } else {
+                unknown.add(tile);
+            }
+        }
+        for (int i = 0; i < board.getPlayedCount(); i++) {
+            int tile = DominoSet.tileOf(board.getPlacement(i));
+            unknown.remove(tile);
+            tileHash ^= playedKeys[tile];
+        }
+        handPips = hand.pipTotal(dominoSet);
+        unknownPips = unknown.pipTotal(dominoSet);
+        left = board.getPlayedCount() == 0 ? -1 : board.getLeftEnd();
+        right = board.getPlayedCount() == 0 ? -1 : board.getRightEnd();
+        opponentCount = engine.getPlayer(opponent).getTraySize();
+        boneyardSize = board.getBoneyardSize();
+        passes = engine.getConsecutivePasses();
+    }
+
+    /**
+     * Builds the keys and buffers for the domino set of some rules.
+     *
+     * @param gameRules the rules of the game
+     */
+    private void allocate(Rules gameRules) {
+        rules = gameRules;
+        moveTable = gameRules.getMoveTable();
+        drawing = gameRules.allowsDrawing();
+        DominoSet set = moveTable.getDominoSet();
+        dominoSet = set;
+        hand = new TileBits(set);
+        unknown = new TileBits(set);
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        handKeys = random.longs(set.size()).toArray();
+        playedKeys = random.longs(set.size()).toArray();
+        lowEndKeys = random.longs(set.getDominoRange() + 1L).toArray();
+        highEndKeys = random.longs(set.getDominoRange() + 1L).toArray();
+        opponentKeys = random.longs(set.size() + 1L).toArray();
+        boneyardKeys = random.longs(set.size() + 1L).toArray();
+        passKeys = random.longs(3).toArray();
+        moverKey = random.nextLong();
+        plyMoves = new int[maxDepth + 1][4 * set.size()];
+        plyValues = new double[maxDepth + 1][set.size()];
+        table.clear();
+    }
+
+    /**
+     * Searches a position where the searching player is to move.
+     *
+     * @param depth the remaining depth
+     * @param ply   the distance from the root
+     * @return the expected score
+     */
+    private double ownNode(int depth, int ply) {
+        if (depth == 0) {
+            return evaluate();
+        }
+        if (tick()) {
+            return 0;
+        }
+        long key = key(true);
+        int slot = table.find(key);
+        int tableMove = -1;
+        if (slot >= 0) {
+            if (table.depth(slot) >= depth) {
+                return table.value(slot);
+            }
+            tableMove = table.bestMove(slot);
+        }
+
+        int[] moves = plyMoves[ply];
+        int count = generateMoves(hand, moves);
+        double best;
+        int bestMove = -1;
+        if (count == 0) {
+            best = drawing && boneyardSize > 0 ? ownDraw(depth, ply) : pass(true, depth, ply);
+        } else {
+            orderMoves(moves, count, tableMove);
+            best = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                int oldLeft = left;
+                int oldRight = right;
+                int oldPasses = passes;
+                playOwn(move);
+                double value = hand.isEmpty() ? win() : opponentNode(depth - 1, ply + 1);
+                undoOwn(move, oldLeft, oldRight, oldPasses);
+                if (aborted) {
+                    return 0;
+                }
+                if (value > best) {
+                    best = value;
+                    bestMove = move;
+                }
+            }
+        }
+        if (!aborted) {
+            table.store(key, depth, best, bestMove);
+        }
+        return best;
+    }
+
+    /**
+     * Averages over every unknown tile the searching player could draw.
+     *
+     * @param depth the remaining depth
+     * @param ply   the distance from the root
+     * @return the expected score
+     */
+    private double ownDraw(int depth, int ply) {
+        int unknownCount = unknown.size();
+        double total = 0;
+        boneyardSize--;
+        for (int tile = unknown.next(0); tile >= 0; tile = unknown.next(tile + 1)) {
+            int pips = dominoSet.pips(tile);
+            unknown.remove(tile);
+            hand.add(tile);
+            unknownPips -= pips;
+            handPips += pips;
+            tileHash ^= handKeys[tile];
+            total += ownNode(depth - 1, ply + 1);
+            tileHash ^= handKeys[tile];
+            handPips -= pips;
+            unknownPips += pips;
+            hand.remove(tile);
+            unknown.add(tile);
+            if (aborted) {
+                break;
+            }
+        }
+        boneyardSize++;
+        return total / unknownCount;
+    }
+
+    /**
+     * Searches a position where the opponent is to move.
+     *
+     * @param depth the remaining depth
+     * @param ply   the distance from the root
+     * @return the expected score
+     */
+    private double opponentNode(int depth, int ply) {
+        if (depth == 0) {
+            return evaluate();
+        }
+        if (tick()) {
+            return 0;
+        }
+        long key = key(false);
+        int slot = table.find(key);
+        if (slot >= 0 && table.depth(slot) >= depth) {
+            return table.value(slot);
+        }
+
+        // The opponent's best score with each playable unknown tile.
+        int[] moves = plyMoves[ply];
+        double[] values = plyValues[ply];
+        int count = generateMoves(unknown, moves);
+        int replies = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int oldLeft = left;
+            int oldRight = right;
+            int oldPasses = passes;
+            playOpponent(move);
+            double value = opponentCount == 0 ? loss() : ownNode(depth - 1, ply + 1);
+            undoOpponent(move, oldLeft, oldRight, oldPasses);
+            if (aborted) {
+                return 0;
+            }
+            if (i > 0 && Moves.tile(moves[i - 1]) == Moves.tile(move)) {
+                values[replies - 1] = Math.min(values[replies - 1], value);
+            } else {
+                values[replies++] = value;
+            }
+        }
+        sortAscending(values, replies);
+
+        // noneOf is the chance that the opponent holds none of the first i replies.
+        int unknownCount = unknown.size();
+        double noneOf = 1;
+        double expected = 0;
+        for (int i = 0; i < replies && noneOf > 0; i++) {
+            int outside = unknownCount - opponentCount - i;
+            double next = outside <= 0 ? 0 : noneOf * outside / (unknownCount - i);
+            expected += (noneOf - next) * values[i];
+            noneOf = next;
+        }
+        if (noneOf > 0) {
+            double blocked;
+            if (drawing && boneyardSize > 0) {
+                opponentCount++;
+                boneyardSize--;
+                blocked = opponentNode(depth - 1, ply + 1);
+                boneyardSize++;
+                opponentCount--;
+            } else {
+                blocked = pass(false, depth, ply);
+            }
+            expected += noneOf * blocked;
+        }
+        if (!aborted) {
+            table.store(key, depth, expected, -1);
+        }
+        return expected;
+    }
+
+    /**
+     * Passes for the player to move and searches on, or scores the blocked game.
+     *
+     * @param own   {@code true} if the searching player passes
+     * @param depth the remaining depth
+     * @param ply   the distance from the root
+     * @return the expected score
+     */
+    private double pass(boolean own, int depth, int ply) {
+        if (passes == 1) {
+            return blocked();
+        }
+        passes++;
+        double value = own ? opponentNode(depth - 1, ply + 1) : ownNode(depth - 1, ply + 1);
+        passes--;
+        return value;
+    }
+
+    /**
+     * Lists the legal moves of the tiles in a set against the current open ends, leaving out
+     * the mirror moves when both ends are equal.
+     *
+     * @param tiles the tiles to play from
+     * @param moves the buffer to fill
+     * @return the number of moves
+     */
+    private int generateMoves(TileBits tiles, int[] moves) {
+        return moveTable.distinctMoves(tiles, left, right, moves);
+    }
+
+    /**
+     * Moves the table's best move to the front and sorts the rest heaviest first.
+     *
+     * @param moves     the moves
+     * @param count     the number of moves
+     * @param tableMove the best move found earlier, or -1
+     */
+    private void orderMoves(int[] moves, int count, int tableMove) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int key = orderKey(move, tableMove);
+            int j = i - 1;
+            while (j >= 0 && orderKey(moves[j], tableMove) < key) {
+                moves[j + 1] = moves[j];
+                j--;
+            }
+            moves[j + 1] = move;
+        }
+    }
+
+    /**
+     * Computes the ordering key of a move; larger keys are searched first.
+     *
+     * @param move      the move
+     * @param tableMove the best move found earlier, or -1
+     * @return the key
+     */
+    private int orderKey(int move, int tableMove) {
+        return move == tableMove ? Integer.MAX_VALUE : dominoSet.pips(Moves.tile(move));
+    }
+
+    /**
+     * Sorts the first values of an array in ascending order.
+     *
+     * @param values the values
+     * @param count  the number of values to sort
+     */
+    private static void sortAscending(double[] values, int count) {
+        for (int i = 1; i < count; i++) {
+            double value = values[i];
+            int j = i - 1;
+            while (j >= 0 && values[j] > value) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = value;
+        }
+    }
+
+    /**
+     * Plays a move from the searching player's tray.
+     *
+     * @param move the move
+     */
+    private void playOwn(int move) {
+        int tile = Moves.tile(move);
+        hand.remove(tile);
+        handPips -= dominoSet.pips(tile);
+        tileHash ^= handKeys[tile] ^ playedKeys[tile];
+        place(move);
+    }
+
+    /**
+     * Takes back a move of the searching player.
+     *
+     * @param move      the move
+     * @param oldLeft   the left end before the move
+     * @param oldRight  the right end before the move
+     * @param oldPasses the passes before the move
+     */
+    private void undoOwn(int move, int oldLeft, int oldRight, int oldPasses) {
+        int tile = Moves.tile(move);
+        hand.add(tile);
+        handPips += dominoSet.pips(tile);
+        tileHash ^= handKeys[tile] ^ playedKeys[tile];
+        left = oldLeft;
+        right = oldRight;
+        passes = oldPasses;
+    }
+
+    /**
+     * Plays a move of the opponent with an unknown tile.
+     *
+     * @param move the move
+     */
+    private void playOpponent(int move) {
+        int tile = Moves.tile(move);
+        unknown.remove(tile);
+        unknownPips -= dominoSet.pips(tile);
+        opponentCount--;
+        tileHash ^= playedKeys[tile];
+        place(move);
+    }
+
+    /**
+     * Takes back a move of the opponent.
+     *
+     * @param move      the move
+     * @param oldLeft   the left end before the move
+     * @param oldRight  the right end before the move
+     * @param oldPasses the passes before the move
+     */
+    private void undoOpponent(int move, int oldLeft, int oldRight, int oldPasses) {
+        int tile = Moves.tile(move);
+        unknown.add(tile);
+        unknownPips += dominoSet.pips(tile);
+        opponentCount++;
+        tileHash ^= playedKeys[tile];
+        left = oldLeft;
+        right = oldRight;
+        passes = oldPasses;
+    }
+
+    /**
+     * Updates the open ends for a move.
+     *
+     * @param move the move
+     */
+    private void place(int move) {
+        int placement = Moves.placement(move);
+        if (left < 0) {
+            left = dominoSet.leftOf(placement);
+            right = dominoSet.rightOf(placement);
+        } else if (Moves.side(move) == Side.Left) {
+            left = dominoSet.leftOf(placement);
+        } else {
+            right = dominoSet.rightOf(placement);
+        }
+        passes = 0;
+    }
+
+    /**
+     * Hashes the current position.
+     *
+     * @param ownTurn {@code true} if the searching player is to move
+     * @return the position hash
+     */
+    private long key(boolean ownTurn) {
+        int empty = dominoSet.getDominoRange();
+        int low = left < 0 ? empty : Math.min(left, right);
+        int high = left < 0 ? empty : Math.max(left, right);
+        return tileHash ^ lowEndKeys[low] ^ highEndKeys[high] ^ opponentKeys[opponentCount]
+                ^ boneyardKeys[boneyardSize] ^ passKeys[passes] ^ (ownTurn ? moverKey : 0);
+    }
+
+    /**
+     * Counts a node and checks the clock now and then. An interrupted thread counts as out of
+     * time, so a front-end can cancel a search running in the background.
+     *
+     * @return {@code true} if the search has run out of time
+     */
+    private boolean tick() {
+        if (++nodes % CLOCK_INTERVAL == 0
+                && (System.nanoTime() >= deadline || Thread.currentThread().isInterrupted())) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    /**
+     * Scores a position at the depth limit.
+     *
+     * @return the heuristic score
+     */
+    private double evaluate() {
+        depthLimited = true;
+        int tileWeight = dominoSet.getDominoRange();
+        return (opponentCount - hand.size()) * tileWeight + opponentPips() - handPips;
+    }
+
+    /**
+     * Scores a game the searching player has won by emptying their tray.
+     *
+     * @return the score
+     */
+    private double win() {
+        return WIN + opponentPips();
+    }
+
+    /**
+     * Scores a game the opponent has won by emptying their tray.
+     *
+     * @return the score
+     */
+    private double loss() {
+        return -WIN - handPips;
+    }
+
+    /**
+     * Scores a game that ended with both players passing.
+     *
+     * @return the score
+     */
+    private double blocked() {
+        double margin = opponentPips() - handPips;
+        return margin > 0 ? WIN + margin : margin < 0 ? -WIN + margin : 0;
+    }
+
+    /**
+     * Estimates the dots in the opponent's tray from the average unknown tile.
+     *
+     * @return the expected number of dots
+     */
+    private double opponentPips() {
+        int unknownCount = unknown.size();
+        return unknownCount == 0 ? 0 : (double) opponentCount * unknownPips / unknownCount;
+    }
+}
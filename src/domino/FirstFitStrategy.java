@@ -0,0 +1,23 @@
+package domino;
+
+/**
+ * The original computer player: plays the first legal move, which is the lowest playable
+ * tile, on the left end if it fits there.
+ *
+ * @author Krishna Sedhain
+ */
+public class FirstFitStrategy implements Strategy {
+
+    /**
+     * Always picks the first legal move.
+     *
+     * @param engine the game
+     * @param moves  the legal moves
+     * @param count  the number of legal moves
+     * @return 0
+     */
+    @Override
+    public int chooseMove(GameEngine engine, int[] moves, int count) {
+        return 0;
+    }
+}
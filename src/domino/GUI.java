@@ -1,16 +1,17 @@
 package domino;
 
-import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
-import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.effect.DropShadow;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
@@ -19,11 +20,14 @@ import javafx.scene.text.FontWeight;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
-import java.io.InputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The GUI class represents the graphical user interface for a Domino game.
@@ -31,18 +35,29 @@ import java.util.List;
  * for the game, including player interactions, game logic, and visual representation
  * of the game state.
  *
- * <p>This class handles the distribution of dominoes, player turns, and game-over conditions.
- * It also manages the visual components such as the player's tray, the middle play area,
- * and the boneyard.</p>
+ * <p>This class is a front-end over {@link GameEngine}, which handles the distribution of
+ * dominoes, player turns, and game-over conditions. The GUI manages the visual components
+ * such as the player's tray, the middle play area, and the boneyard.</p>
  *
- * <p>In this version, any domino that has a 0 on either side is treated as a wildcard,
- * meaning it matches with any domino end.</p>
+ * <p>By default, any domino that has a 0 on either side is treated as a wildcard,
+ * meaning it matches with any domino end. Another {@link RuleSet} can be chosen with the
+ * optional second command line argument.</p>
  *
  * <p>
  * Additionally, this version supports an optional integer command line argument that
  * specifies the maximum number of dots on a domino. If no argument is provided or if the
  * value is 6, the default domino set (with up to 6 dots) is used. If the argument is any
- * value between 3 and 9, that value is used. Values outside that range will cause an error.
+ * value between 3 and 18, that value is used. Values outside that range will cause an error.
+ * Tiles are drawn into a sprite atlas when the game starts, so every set size can be shown.
+ *
+ * <p>The computer thinks on a background thread, on a copy of the game, so the window keeps
+ * drawing while it searches. An optional third argument sets its time budget per move in
+ * milliseconds (50 by default). The chosen move is played on the FX thread.</p>
+ *
+ * <p>The game is saved as a {@link GameSnapshots snapshot} to {@code domino-gui.sav} after
+ * every move and when the Exit button is pressed. If that file holds a game when the GUI
+ * starts, the saved game is resumed with its own set and rules, unless the command line asks
+ * for another set or rules; {@code --new} discards it.</p>
  *
  * @author Krishna Sedhain
  * </p>
@@ -51,14 +66,48 @@ public class GUI extends Application {
 
     // Static field for maximum dots. Default is 6.
     public static int MAX_DOTS = 6;
-
-    private final Board board = new Board();
-    private final Player human = new Player(Players.Human);
-    private final Player computer = new Player(Players.Computer);
+    // Rules of the game. Default is the zero-wildcard game.
+    static RuleSet RULE_SET = RuleSet.ZeroWildcard;
+    // Time the computer may think about a move, in milliseconds. Default is 50.
+    static long THINK_MILLIS = 50;
+    // The file the game is saved to after every move.
+    static final Path SAVE_FILE = Path.of("domino-gui.sav");
+    // Command line option that discards the saved game and deals a new one.
+    static final String NEW_OPTION = "--new";
+
+    private GameEngine engine;
+    // The game read from SAVE_FILE in init(), or null to deal a new one.
+    private GameEngine savedGame;
+    // Observable counts of the game, followed through the engine's change listener.
+    private GameCounts counts;
+    // Sprite atlas of every tile, shared by every ImageView; drawn in init().
+    private DominoImages dominoImages;
+    private Board board;
+    private Player human;
+    // Searches ahead within THINK_MILLIS per move and plays perfectly once the boneyard is
+    // empty; only ever used on the computer thread.
+    private Strategy computerStrategy;
+    // Runs the computer's searches, one at a time, off the FX thread. A daemon, so a search
+    // still running never keeps the application alive.
+    private final ExecutorService computerThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "computer-player");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // The copy of the game the computer searches, so the FX thread never shares the engine.
+    private GameEngine searchEngine;
+    // Legal moves of the computer's current turn.
+    private int[] computerMoves;
+    // Numbers the computer's searches; a result is only played if no newer search or
+    // cancellation has happened since it was started.
+    private long computerTurn;
+    // True while the computer is thinking; the play and draw buttons are disabled meanwhile.
+    private final BooleanProperty computerThinking = new SimpleBooleanProperty(this, "computerThinking");
     private final VBox vBoxToIncludeLabelAndDominos = new VBox();
     private final HBox humanPlayAreaDown = new HBox();
     private final HBox numOfDicesUpdateHbox = new HBox();
-    private final HBox middlePlayArea = new HBox();
+    // The line of play; only the tiles that fit on screen have nodes.
+    private PlayArea middlePlayArea;
     // Left–side container for menu options.
     private final VBox leftMenuOptions = new VBox();
 
@@ -66,29 +115,32 @@ public class GUI extends Application {
     private String currentRadioButton = "";
     private int comboBoxSelection = 0;
     private String rotateOptionSelection = "";
-    private final Main gameManager = new Main();
-    private boolean endGame;
-    private String lastPlayedPlayerForWinnerSelection = "human";
     private final List<ImageView> listToRemoveHumanTrayAfterSelection = new ArrayList<>();
-    private final List<Domino> listToRemoveHumanTrayTrack = new ArrayList<>();
     private boolean isPopUpRequired = false;
-    private Deque<Domino> latestAddedDice = new LinkedList<>();
 
     /**
      * The init method is called before start() and processes command line arguments.
-     * It checks for an optional integer argument specifying the maximum number of dots.
+     * It checks for an optional integer argument specifying the maximum number of dots,
+     * followed by an optional rule set name and an optional thinking time for the computer in
+     * milliseconds. A saved game is read next and resumed with its own set and rules; a set
+     * size or rule set given on the command line must match it, otherwise the GUI refuses to
+     * start. The option {@code --new} discards the saved game instead. It then draws the sprite
+     * atlas of the set, off the FX thread, so showing a tile later only takes a new view of
+     * the atlas.
      */
     @Override
     public void init() throws Exception {
-        List<String> args = getParameters().getRaw();
+        List<String> args = new ArrayList<>(getParameters().getRaw());
+        boolean newGame = args.remove(NEW_OPTION);
         if (!args.isEmpty()) {
             try {
                 int value = Integer.parseInt(args.get(0));
-                // Accept value 6 (default) or any value between 3 and 9.
-                if (value == 6 || (value >= 3 && value <= 9)) {
+                // Accept value 6 (default) or any value between 3 and 18.
+                if (value == 6 || (value >= GameEngine.MIN_SET_DOTS && value <= GameEngine.MAX_SET_DOTS)) {
                     MAX_DOTS = value;
                 } else {
-                    System.err.println("Invalid domino set size. Please provide a value between 3 and 9 (or no argument for default 6).");
+                    System.err.println("Invalid domino set size. Please provide a value between "
+                            + GameEngine.MIN_SET_DOTS + " and " + GameEngine.MAX_SET_DOTS + " (or no argument for default 6).");
                     System.exit(1);
                 }
             } catch (NumberFormatException e) {
@@ -96,6 +148,47 @@ public class GUI extends Application {
                 System.exit(1);
             }
         }
+        if (args.size() > 1) {
+            try {
+                RULE_SET = RuleSet.valueOf(args.get(1));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid rule set. Please provide one of " + Arrays.toString(RuleSet.values()) + ".");
+                System.exit(1);
+            }
+        }
+        if (args.size() > 2) {
+            try {
+                THINK_MILLIS = Long.parseLong(args.get(2));
+            } catch (NumberFormatException e) {
+                THINK_MILLIS = 0;
+            }
+            if (THINK_MILLIS <= 0) {
+                System.err.println("Invalid thinking time. Please provide a positive number of milliseconds.");
+                System.exit(1);
+            }
+        }
+        if (!newGame && Files.exists(SAVE_FILE)) {
+            try {
+                savedGame = GameSnapshots.read(SAVE_FILE);
+            } catch (IOException e) {
+                System.err.println("Could not resume the game saved in " + SAVE_FILE + " (" + e.getMessage()
+                        + ") Add " + NEW_OPTION + " to discard it.");
+                System.exit(1);
+            }
+            int savedDots = savedGame.getDominoSet().getDominoRange() - 1;
+            RuleSet savedRules = savedGame.getRules().getRuleSet();
+            if ((!args.isEmpty() && MAX_DOTS != savedDots) || (args.size() > 1 && RULE_SET != savedRules)) {
+                System.err.println("The game saved in " + SAVE_FILE + " (set " + savedDots + ", " + savedRules
+                        + ") does not match the arguments. Run without them to resume it, or add "
+                        + NEW_OPTION + " to discard it.");
+                System.exit(1);
+            }
+            MAX_DOTS = savedDots;
+            RULE_SET = savedRules;
+            System.out.println("Resuming the game saved in " + SAVE_FILE);
+        }
+        computerStrategy = new EndgameSolver(new ExpectimaxStrategy(THINK_MILLIS * 1_000_000L, 16, 18));
+        dominoImages = new DominoImages(MAX_DOTS);
     }
 
     /**
@@ -110,13 +203,21 @@ public class GUI extends Application {
         primaryStage.setTitle("Domino Game");
 
 
-        System.out.println("Using domino set with maximum dots: " + MAX_DOTS);
+        System.out.println("Using domino set with maximum dots: " + MAX_DOTS + " and rules: " + RULE_SET);
 
 
-        gameManager.distributeDomino(human, computer, board);
+        engine = savedGame != null ? savedGame : new GameEngine(MAX_DOTS, RULE_SET);
+        board = engine.getBoard();
+        human = engine.getPlayer(Players.Human);
+        counts = new GameCounts(engine);
+        if (savedGame == null) {
+            engine.deal();
+        }
+        searchEngine = new GameEngine(MAX_DOTS, RULE_SET);
+        computerMoves = new int[engine.maxMoves()];
 
         // --- Style and layout the middle play area ---
-        middlePlayArea.setAlignment(Pos.CENTER);
+        middlePlayArea = new PlayArea(board, dominoImages);
         middlePlayArea.setPrefSize(500, 500);
         middlePlayArea.setPadding(new Insets(15));
         middlePlayArea.setBorder(new Border(new BorderStroke(Color.GAINSBORO,
@@ -124,6 +225,8 @@ public class GUI extends Application {
 
         humanPlayAreaDown.setSpacing(10);
         humanPlayAreaDown.setPadding(new Insets(10));
+        // One shadow for the whole tray instead of an effect per tile.
+        humanPlayAreaDown.setEffect(new DropShadow(5, Color.BLACK));
 
         // --- Set up the root BorderPane ---
         BorderPane root = new BorderPane();
@@ -143,23 +246,21 @@ public class GUI extends Application {
         numOfDicesUpdateHbox.setSpacing(20);
         numOfDicesUpdateHbox.setPadding(new Insets(10));
         numOfDicesUpdateHbox.setAlignment(Pos.CENTER);
-        Label boneyardCount = makeLabel("Boneyard has " + board.getAvailableDomino().size() + " pieces.", 25);
-        Label computerCount = makeLabel("Computer has " + computer.getTray().size() + " pieces.", 25);
-        Label humanCount = makeLabel("Human has " + human.getTray().size() + " pieces.", 25);
+        // The labels are bound to the counts, so they only change when a tile actually moves.
+        Label boneyardCount = makeLabel("", 25);
+        Label computerCount = makeLabel("", 25);
+        Label humanCount = makeLabel("", 25);
+        boneyardCount.textProperty().bind(counts.boneyardProperty().asString("Boneyard has %d pieces."));
+        computerCount.textProperty().bind(counts.computerTrayProperty().asString("Computer has %d pieces."));
+        humanCount.textProperty().bind(counts.humanTrayProperty().asString("Human has %d pieces."));
         numOfDicesUpdateHbox.getChildren().addAll(boneyardCount, computerCount, humanCount);
-
-        AnimationTimer animationTimer = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                numOfDicesUpdateHbox.getChildren().removeAll(boneyardCount, computerCount, humanCount);
-                int boneyardSize = board.getAvailableDomino() == null ? 0 : board.getAvailableDomino().size();
-                boneyardCount.setText("Boneyard has " + boneyardSize + " pieces.");
-                computerCount.setText("Computer has " + computer.getTray().size() + " pieces.");
-                humanCount.setText("Human has " + human.getTray().size() + " pieces.");
-                numOfDicesUpdateHbox.getChildren().addAll(boneyardCount, computerCount, humanCount);
-            }
-        };
-        animationTimer.start();
+        // Only rules that score plays keep a running score worth showing.
+        if (engine.getRules().scoresPlays()) {
+            Label scoreCount = makeLabel("", 25);
+            scoreCount.textProperty().bind(Bindings.format("Score %d : %d",
+                    counts.humanScoreProperty(), counts.computerScoreProperty()));
+            numOfDicesUpdateHbox.getChildren().add(scoreCount);
+        }
 
         // --- Left: Menu Options ---
         leftMenuOptions.setSpacing(10);
@@ -185,6 +286,8 @@ public class GUI extends Application {
         Button playButton = createPlayButton();
         Button drawFromBoneyardButton = createDrawFromBoneYardButton();
         Button exitButton = createExitButton();
+        playButton.disableProperty().bind(computerThinking);
+        drawFromBoneyardButton.disableProperty().bind(computerThinking);
         rightMenuOptions.getChildren().addAll(playButton, drawFromBoneyardButton, exitButton);
         root.setRight(rightMenuOptions);
 
@@ -198,6 +301,10 @@ public class GUI extends Application {
         primaryStage.setScene(scene);
         primaryStage.setResizable(false);
         primaryStage.show();
+        // A game saved while the computer was thinking carries on with the computer's turn.
+        if (engine.getCurrentPlayer() == Players.Computer) {
+            computerPlay();
+        }
     }
 
     /**
@@ -310,48 +417,34 @@ public class GUI extends Application {
         newStageIfInvalidPlayPopUp(popupWindow, popupLayout, popupScene, errorMessage);
 
         playButton.setOnAction(event -> {
-            if ((board.getPlayedDomino().size() >= 0 || gameManager.checkIfValidPlayExists(human.getTray(), board))
-                    && board.getAvailableDomino() != null) {
-                if (comboBoxSelection >= human.getTray().size()) {
-                    isPopUpRequired = true;
-                }
-                if (isPopUpRequired) {
-                    popupWindow.setTitle("Selected dice is empty!!!");
-                    popupWindow.showAndWait();
-                    isPopUpRequired = false;
-                    return;
-                }
-                Domino dice = human.getDominoFromTray(comboBoxSelection);
-                if (!checkIfValidPlay(dice)) {
-                    isPopUpRequired = true;
-                }
-                if (isPopUpRequired) {
-                    popupWindow.setTitle("Incorrect Play");
-                    popupWindow.showAndWait();
-                    isPopUpRequired = false;
-                    return;
-                }
-                if (currentRadioButton.equals("l")) {
-                    if (rotateOptionSelection.equals("y")) {
-                        human.getDominoFromTray(comboBoxSelection).rotateDomino();
-                    }
-                    board.placeOnLeft(human.getDominoFromTray(comboBoxSelection));
-                } else if (currentRadioButton.equals("r")) {
-                    if (rotateOptionSelection.equals("y")) {
-                        human.getDominoFromTray(comboBoxSelection).rotateDomino();
-                    }
-                    board.placeOnRight(human.getDominoFromTray(comboBoxSelection));
-                }
-                human.removedDominoFromPlayerTray(comboBoxSelection);
-                addDiceImageToPlayersTray(human, humanPlayAreaDown, comboBoxSelection);
+            if (engine.isTerminal()) {
+                return;
             }
-            if (gameEndStatus(human)) {
-                gameOverGUI(human);
+            if (comboBoxSelection >= human.getTray().size()) {
+                isPopUpRequired = true;
             }
-            computerPlay();
-            if (gameEndStatus(computer)) {
-                gameOverGUI(computer);
+            if (isPopUpRequired) {
+                popupWindow.setTitle("Selected dice is empty!!!");
+                popupWindow.showAndWait();
+                isPopUpRequired = false;
+                return;
+            }
+            Side side = currentRadioButton.equals("l") ? Side.Left : Side.Right;
+            if (currentRadioButton.isEmpty() || !engine.applyMove(comboBoxSelection, side, rotateOptionSelection.equals("y"))) {
+                isPopUpRequired = true;
+            }
+            if (isPopUpRequired) {
+                popupWindow.setTitle("Incorrect Play");
+                popupWindow.showAndWait();
+                isPopUpRequired = false;
+                return;
             }
+            addDiceImageToPlayersTray(human, humanPlayAreaDown, comboBoxSelection);
+            save();
+            if (gameEndStatus()) {
+                return;
+            }
+            computerPlay();
         });
         return playButton;
     }
@@ -366,43 +459,61 @@ public class GUI extends Application {
         Button drawFromBoneyard = new Button("Draw From Boneyard");
         styleButton(drawFromBoneyard);
         drawFromBoneyard.setOnAction(event -> {
-            for (Domino dice : human.getTray()) {
-                if (checkIfValidPlay(dice)) {
-                    popUpWindow("Valid Play Exists", "You have a valid play. Please check again!");
-                    return;
-                }
+            if (engine.isTerminal()) {
+                return;
+            }
+            if (engine.hasValidPlay(human)) {
+                popUpWindow("Valid Play Exists", "You have a valid play. Please check again!");
+                return;
             }
-            if (board.getAvailableDomino() == null) {
-                popUpWindow("Boneyard is empty", "Cannot draw. Boneyard is empty!!!");
-                gameOverGUI(computer);
+            if (engine.mustPass()) {
+                if (board.getBoneyardSize() == 0) {
+                    popUpWindow("Boneyard is empty", "Cannot draw. Boneyard is empty!!!");
+                } else {
+                    popUpWindow("No drawing", "Cannot draw under " + RULE_SET + " rules. Passing.");
+                }
+                engine.pass();
+                computerPlay();
                 return;
             }
-            Domino pickedDice = board.drawFromBoneyard();
+            int pickedTile = engine.draw();
+            save();
+            Domino pickedDice = engine.getDominoSet().toDomino(DominoSet.placement(pickedTile, false));
             int leftNum = pickedDice.getLeftNumDots();
             int rightNum = pickedDice.getRightNumDots();
-            human.addDominoToPlayerTray(pickedDice);
             System.out.println("Added " + leftNum + ", " + rightNum);
             ImageView pickedDomino = getImage(leftNum, rightNum, false);
-            humanPlayAreaDown.getChildren().add(pickedDomino);
+            // The tray is kept in tile order, so the new image goes where the tile sits in the tray.
+            int trayIndex = human.getTrayIndex(pickedTile);
+            listToRemoveHumanTrayAfterSelection.add(trayIndex, pickedDomino);
+            humanPlayAreaDown.getChildren().add(trayIndex, pickedDomino);
         });
         return drawFromBoneyard;
     }
 
     /**
      * Creates and configures the Exit button to terminate the application.
+     * The game is saved first, so it is resumed on the next start. The application is
+     * stopped through JavaFX, so a search in progress is cancelled.
      *
      * @return A Button configured for exiting the game.
      */
     private Button createExitButton() {
         Button exitButton = new Button("Exit");
         styleButton(exitButton);
-        exitButton.setOnAction(event -> System.exit(0));
+        exitButton.setOnAction(event -> {
+            if (!engine.isTerminal()) {
+                save();
+            }
+            Platform.exit();
+        });
         return exitButton;
     }
 
     /**
      * Adds domino images to the player's tray displayed in the GUI.
-     * If removeIndex is non-negative, it removes the domino image at that index and adds it to the middle play area.
+     * If removeIndex is non-negative, it removes the domino image at that index and shows the
+     * played domino in the middle play area.
      * Otherwise, it adds new domino images representing the player's current tray.
      *
      * @param currPlayer        The player whose tray is being updated.
@@ -410,136 +521,30 @@ public class GUI extends Application {
      * @param removeIndex       The index of the domino to remove and update; if negative, no removal occurs.
      */
     private void addDiceImageToPlayersTray(Player currPlayer, HBox humanPlayAreaDown, int removeIndex) {
-        int traySize = currPlayer.getTray().size(); // Changed from board size to tray size.
-        for (int i = 0; i < traySize; i++) {
-            if (currPlayer.getTray().size() == 0) {
-                gameOverGUI(currPlayer);
-                return;
-            }
-            int leftNum = currPlayer.getDominoFromTray(i).getLeftNumDots();
-            int rightNum = currPlayer.getDominoFromTray(i).getRightNumDots();
-            int boardSize = gameManager.getBoard().getBoneyardSize();
-            for (int m = 0; m < boardSize; m++) {
-                for (int n = m; n < boardSize; n++) {
-                    if (leftNum == m && rightNum == n) {
-                        if (checkIfNullForAddingToTray(humanPlayAreaDown, middlePlayArea, removeIndex, m, n))
-                            return;
-                    } else if (leftNum == n && rightNum == m) {
-                        if (checkIfNullForAddingToTray(humanPlayAreaDown, middlePlayArea, removeIndex, m, n))
-                            return;
-                    }
-                }
-            }
-        }
-    }
-
-    /**
-     * Checks if the domino image should be added to the player's tray or moved to the middle play area.
-     *
-     * @param keepDicesHere The HBox containing the player's tray domino images.
-     * @param addToThisHbox The HBox representing the middle play area.
-     * @param removeIndex   The index of the domino to remove from the player's tray.
-     * @param m             The left number of dots on the domino.
-     * @param n             The right number of dots on the domino.
-     * @return true if a domino was removed and added to the middle play area; false otherwise.
-     */
-    private boolean checkIfNullForAddingToTray(HBox keepDicesHere, HBox addToThisHbox, int removeIndex, int m, int n) {
-        ImageView domino;
         if (removeIndex >= 0) {
             if (removeIndex < listToRemoveHumanTrayAfterSelection.size()) {
-                keepDicesHere.getChildren().remove(listToRemoveHumanTrayAfterSelection.get(removeIndex));
-                ImageView addPlayedDiceToMiddle = listToRemoveHumanTrayAfterSelection.get(removeIndex);
-                if (currentRadioButton.equals("l")) {
-                    if (rotateOptionSelection.equals("y")) {
-                        int leftNum = board.getPlayedDomino().getFirst().getLeftNumDots();
-                        int rightNum = board.getPlayedDomino().getFirst().getRightNumDots();
-                        addPlayedDiceToMiddle = getImage(rightNum, leftNum, true);
-                        addToThisHbox.getChildren().add(0, addPlayedDiceToMiddle);
-                    } else {
-                        if (!isNodeInHBox(addToThisHbox, addPlayedDiceToMiddle)) {
-                            addToThisHbox.getChildren().add(0, addPlayedDiceToMiddle);
-                        }
-                    }
-                } else if (currentRadioButton.equals("r")) {
-                    if (rotateOptionSelection.equals("y")) {
-                        int leftNum = board.getPlayedDomino().getLast().getLeftNumDots();
-                        int rightNum = board.getPlayedDomino().getLast().getRightNumDots();
-                        addPlayedDiceToMiddle = getImage(rightNum, leftNum, true);
-                        addToThisHbox.getChildren().add(addPlayedDiceToMiddle);
-                    } else if (!isNodeInHBox(addToThisHbox, addPlayedDiceToMiddle)) {
-                        addToThisHbox.getChildren().add(addPlayedDiceToMiddle);
-                    }
-                }
-                listToRemoveHumanTrayAfterSelection.remove(removeIndex);
-                return true;
-            }
-        } else {
-            domino = getImage(m, n, false);
-            keepDicesHere.getChildren().add(domino);
-        }
-        return false;
-    }
-
-    /**
-     * Checks if a specific Node is present within the given HBox.
-     *
-     * @param hbox The HBox to search within.
-     * @param node The Node to search for.
-     * @return true if the node is found in the HBox; false otherwise.
-     */
-    private boolean isNodeInHBox(HBox hbox, Node node) {
-        for (Node child : hbox.getChildren()) {
-            if (child.equals(node)) {
-                return true;
+                humanPlayAreaDown.getChildren().remove(listToRemoveHumanTrayAfterSelection.remove(removeIndex));
+                middlePlayArea.tileAdded(engine.getLastSide());
             }
+            return;
         }
-        return false;
-    }
-
-    /**
-     * Checks if the selected domino constitutes a valid play based on the current board state.
-     * A play is valid if the domino can be placed on either end of the played domino chain according to game rules.
-     * <p>
-     * NEW: If the domino being played has a 0 on either side, it is treated as a wildcard and is always valid.
-     * </p>
-     *
-     * @param dice The domino to validate.
-     * @return true if the play is valid; false otherwise.
-     */
-    private boolean checkIfValidPlay(Domino dice) {
-        if (board.getPlayedDomino().size() == 0) {
-            return true;
-        }
-        int leftNum = dice.getLeftNumDots();
-        int rightNum = dice.getRightNumDots();
-
-        // Wildcard rule: if the domino has a 0 on either side, treat it as matching any end.
-        if (leftNum == 0 || rightNum == 0) {
-            return true;
-        }
-
-        int playedLeftNum = board.getPlayedDomino().getFirst().getLeftNumDots();
-        int playedRightNum = board.getPlayedDomino().getLast().getRightNumDots();
-        if (rotateOptionSelection.equals("n")) {
-            if (leftNum == playedRightNum || rightNum == playedLeftNum) {
-                return true;
-            }
-        } else if (rotateOptionSelection.equals("y")) {
-            if (leftNum == playedLeftNum || rightNum == playedRightNum) {
-                return true;
-            }
+        for (int i = 0; i < currPlayer.getTraySize(); i++) {
+            Domino dice = currPlayer.getDominoFromTray(i);
+            ImageView domino = getImage(dice.getLeftNumDots(), dice.getRightNumDots(), false);
+            listToRemoveHumanTrayAfterSelection.add(domino);
+            humanPlayAreaDown.getChildren().add(domino);
         }
-        return false;
     }
 
     /**
      * Retrieves an ImageView representing a domino with the specified left and right dot counts.
-     * If the rotate flag is set, the domino image is rotated.
+     * If the rotate flag is set, the domino image is rotated. The view shows the tile's cell
+     * of the shared sprite atlas, so no image is loaded or drawn here.
      *
      * @param m      The left number of dots.
      * @param n      The right number of dots.
      * @param rotate If true, rotates the domino image.
-     * @return An ImageView of the domino, or null if the resource is not found.
+     * @return An ImageView of the domino.
      */
     private ImageView getImage(int m, int n, boolean rotate) {
         if (rotate) {
@@ -547,88 +552,137 @@ public class GUI extends Application {
             m = n;
             n = temp;
         }
-        String imageName = "/resources/" + m + "," + n + ".png";
-        InputStream inputStream = GUI.class.getResourceAsStream(imageName);
-        if (inputStream == null) {
-            System.err.println("Resource not found: " + imageName);
-            return null;
-        }
-        Image dominoPNG = new Image(inputStream);
-        ImageView domino = new ImageView(dominoPNG);
-        // Add a drop shadow effect
-        domino.setEffect(new DropShadow(5, Color.BLACK));
-        listToRemoveHumanTrayAfterSelection.add(domino);
-        return domino;
+        return dominoImages.newView(m, n);
     }
 
     /**
      * Executes the computer player's turn.
-     * The computer evaluates its tray and attempts to play a valid domino.
-     * If no valid play is available, the computer draws from the boneyard until a valid play is found.
-     * <p>
-     * NEW: The conditions now also treat a domino side with 0 as a wildcard that matches any end.
-     * </p>
+     * The computer draws from the boneyard until a valid play is found, or passes. A forced
+     * move is played at once; otherwise the search strategy picks the move on the computer
+     * thread, and the turn carries on in {@link #computerMoved(long, int)}. If the human is
+     * left without a valid play and cannot draw, the human passes and the computer moves
+     * again. Shows the winner if the game ends.
      */
     private void computerPlay() {
-        ArrayList<Domino> computerTray = computer.getTray();
-        ImageView computerDomino;
-        int leftEnd = board.getPlayedDomino().getFirst().getLeftNumDots();
-        int rightEnd = board.getPlayedDomino().getLast().getRightNumDots();
-        for (int i = 0; i < computerTray.size(); i++) {
-            Domino computerDice = computerTray.get(i);
-            int computerLeftPlay = computerDice.getLeftNumDots();
-            int computerRightPlay = computerDice.getRightNumDots();
-
-            if (computerDice.getLeftNumDots() == leftEnd || computerDice.getLeftNumDots() == 0) {
-                computerDomino = getImage(computerLeftPlay, computerRightPlay, true);
-                computerDice.rotateDomino();
-                board.placeOnLeft(computerDice);
-                middlePlayArea.getChildren().add(0, computerDomino);
-                computerTray.remove(i);
-                return;
-            } else if (computerDice.getRightNumDots() == rightEnd || computerDice.getRightNumDots() == 0) {
-                computerDomino = getImage(computerLeftPlay, computerRightPlay, true);
-                computerDice.rotateDomino();
-                board.placeOnRight(computerDice);
-                middlePlayArea.getChildren().add(computerDomino);
-                computerTray.remove(i);
-                return;
-            } else if (computerDice.getLeftNumDots() == rightEnd || computerDice.getLeftNumDots() == 0) {
-                computerDomino = getImage(computerLeftPlay, computerRightPlay, false);
-                board.placeOnRight(computerDice);
-                middlePlayArea.getChildren().add(computerDomino);
-                computerTray.remove(i);
-                return;
-            } else if (computerDice.getRightNumDots() == leftEnd || computerDice.getRightNumDots() == 0) {
-                computerDomino = getImage(computerLeftPlay, computerRightPlay, false);
-                board.placeOnLeft(computerDice);
-                middlePlayArea.getChildren().add(0, computerDomino);
-                computerTray.remove(i);
+        save();
+        while (!engine.isTerminal() && engine.getCurrentPlayer() == Players.Computer) {
+            int count = engine.drawUntilPlayable(computerMoves);
+            if (count > 1) {
+                startThinking(count);
                 return;
             }
+            if (count == 1) {
+                engine.play(computerMoves[0]);
+                middlePlayArea.tileAdded(engine.getLastSide());
+            }
+            passIfHumanBlocked();
         }
-        while (board.getAvailableDomino() != null) {
-            Domino diceFromBoneyard = board.drawFromBoneyard();
-            computerTray.add(diceFromBoneyard);
-            if (gameManager.doesPickedDiceMatchEitherEnd(diceFromBoneyard, board)) {
-                break;
+        save();
+        gameEndStatus();
+    }
+
+    /**
+     * Saves the game to {@link #SAVE_FILE}, or deletes the file once the game is over. A
+     * snapshot is a few dozen bytes, so this takes no noticeable time on the FX thread.
+     */
+    private void save() {
+        try {
+            if (engine.isTerminal()) {
+                Files.deleteIfExists(SAVE_FILE);
+            } else {
+                GameSnapshots.write(engine, SAVE_FILE);
             }
+        } catch (IOException e) {
+            System.err.println("Could not save the game: " + e.getMessage());
         }
-        if (board.getAvailableDomino() == null) {
+    }
+
+    /**
+     * Starts the search for the computer's move on the computer thread. The search runs on a
+     * copy of the game, and its result is handed back to the FX thread.
+     *
+     * @param count the number of legal moves in {@code computerMoves}, more than one
+     */
+    private void startThinking(int count) {
+        searchEngine.copyFrom(engine);
+        int[] moves = Arrays.copyOf(computerMoves, count);
+        long turn = ++computerTurn;
+        computerThinking.set(true);
+        computerThread.execute(() -> {
+            int move;
+            try {
+                move = moves[computerStrategy.chooseMove(searchEngine, moves, count)];
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> computerFailed(turn, e));
+                return;
+            }
+            Platform.runLater(() -> computerMoved(turn, move));
+        });
+    }
+
+    /**
+     * Plays the move the computer chose and carries on with the game. Runs on the FX thread;
+     * the result of a search that was cancelled is dropped.
+     *
+     * @param turn the number of the search that chose the move
+     * @param move the chosen move
+     */
+    private void computerMoved(long turn, int move) {
+        if (turn != computerTurn) {
             return;
         }
+        computerThinking.set(false);
+        engine.play(move);
+        middlePlayArea.tileAdded(engine.getLastSide());
+        passIfHumanBlocked();
         computerPlay();
     }
 
+    /**
+     * Reports a search that failed and stops the game, instead of letting the computer play a
+     * move it did not choose. Runs on the FX thread; a cancelled search is ignored.
+     *
+     * @param turn  the number of the failed search
+     * @param error what the search threw
+     */
+    private void computerFailed(long turn, RuntimeException error) {
+        if (turn != computerTurn) {
+            return;
+        }
+        System.err.println("The computer could not choose a move: " + error);
+        popUpWindow("Computer error", "The computer could not choose a move.");
+        Platform.exit();
+    }
+
+    /**
+     * Passes for the human when it is the human's turn and there is nothing to play or draw.
+     */
+    private void passIfHumanBlocked() {
+        if (engine.getCurrentPlayer() == Players.Human && engine.mustPass()) {
+            engine.pass();
+        }
+    }
+
+    /**
+     * Cancels the computer's search, if any, when the application stops: its result will be
+     * dropped, and the search gives up once it sees the interrupt.
+     */
+    @Override
+    public void stop() {
+        computerTurn++;
+        computerThread.shutdownNow();
+    }
+
     /**
      * Displays the game over GUI indicating the winning player.
      * The method creates a modal window that announces the game outcome and terminates the application upon closure.
      *
-     * @param playedLast The player who played last, used to determine the winner.
+     * @param winner The player who won the game, or null for a tie.
      */
-    private void gameOverGUI(Player playedLast) {
+    private void gameOverGUI(Players winner) {
         String playerWins = "You win the game!";
         String computerWins = "The computer wins!";
+        String tie = "It's a tie!";
         Stage gameOverWindow = new Stage();
         gameOverWindow.setTitle("Game Over!");
         VBox gameOverLayout = new VBox(10);
@@ -640,37 +694,28 @@ public class GUI extends Application {
         winnerMessage.setFont(Font.font("Verdana", FontWeight.BOLD, 18));
         winnerMessage.setTextFill(Color.WHITE);
         newStageIfInvalidPlayPopUp(gameOverWindow, gameOverLayout, gameOverScene, winnerMessage);
-        if (playedLast.equals(human)) {
+        if (winner == Players.Human) {
             winnerMessage.setText(playerWins);
-            gameOverWindow.showAndWait();
-            System.exit(0);
-        }
-        if (playedLast.equals(computer)) {
+        } else if (winner == Players.Computer) {
             winnerMessage.setText(computerWins);
-            gameOverWindow.showAndWait();
-            System.exit(0);
+        } else {
+            winnerMessage.setText(tie);
         }
+        gameOverWindow.showAndWait();
+        System.exit(0);
     }
 
     /**
-     * Evaluates if the game has ended based on the availability of valid plays for both players.
-     * If no valid plays are available for both players, the game is ended and the winner is declared.
+     * Checks if the engine has ended the game and, if so, shows the winner.
      *
-     * @param lastPlayedPlayerForWinnerSelectionPlayer The player who last played a domino.
      * @return true if the game has ended; false otherwise.
      */
-    private boolean gameEndStatus(Player lastPlayedPlayerForWinnerSelectionPlayer) {
-        boolean validPlayForHuman = gameManager.checkIfValidPlayExists(human.getTray(), board);
-        boolean validPlayForComputer = gameManager.checkIfValidPlayExists(computer.getTray(), board);
-        if (!validPlayForHuman && !validPlayForComputer) {
-            endGame = true;
-            gameOverGUI(lastPlayedPlayerForWinnerSelectionPlayer);
-            if (lastPlayedPlayerForWinnerSelectionPlayer.equals(computer)) {
-                lastPlayedPlayerForWinnerSelection = "computer";
-            }
-            Label winnerLabel = makeLabel(" " + lastPlayedPlayerForWinnerSelection, 25);
-            middlePlayArea.getChildren().clear();
-            middlePlayArea.getChildren().add(winnerLabel);
+    private boolean gameEndStatus() {
+        if (engine.isTerminal()) {
+            String winnerText = engine.getWinner() == null ? "tie" : engine.getWinner().toString().toLowerCase();
+            Label winnerLabel = makeLabel(" " + winnerText, 25);
+            middlePlayArea.showMessage(winnerLabel);
+            gameOverGUI(engine.getWinner());
             return true;
         }
         return false;
@@ -0,0 +1,386 @@
+package domino;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only view of an archive of recorded games, memory-mapped so that any game can be
+ * looked up by its number in constant time.
+ *
+ * <p>An archive is two append-only files, written by {@link GameArchiveWriter}:</p>
+ * <ul>
+ *     <li>the data file, the magic {@code "DOMA"} and a version byte followed by the games back
+ *     to back;</li>
+ *     <li>the index file (the data file's name plus {@code .idx}), the magic {@code "DOMI"} and
+ *     a version int followed by the offset in the data file of every game, eight bytes each.</li>
+ * </ul>
+ *
+ * <p>A game in the data file is a fixed {@value #GAME_HEADER_BYTES}-byte header followed by its
+ * events in the encoding of {@link GameRecords}, without an end marker since the header gives
+ * their number. All numbers are big-endian:</p>
+ * <pre>
+ *  0  maximum dots of the set   1 byte
+ *  1  rule set ordinal          1 byte
+ *  2  game seed                 8 bytes
+ * 10  outcome                   1 byte: human won, computer won, tie, unfinished
+ * 11  human's dots left         2 bytes
+ * 13  computer's dots left      2 bytes
+ * 15  human's points            2 bytes
+ * 17  computer's points         2 bytes
+ * 19  number of events          2 bytes
+ * </pre>
+ *
+ * <p>Both files are mapped with {@link FileChannel#map}. Game {@code n} is found by reading
+ * the {@code n}th offset of the index, and every getter reads straight from the mapped data
+ * file with absolute gets, so a lookup is two memory reads, nothing is copied into Java
+ * buffers and an archive can be read from several threads at once. Filtering by outcome
+ * touches only the headers. The data file is mapped in 1 GiB segments that overlap by more
+ * than the largest possible game, so archives larger than 2 GiB work as well and every game
+ * lies within one segment.</p>
+ *
+ * <p>The writer appends a game's data before its index entry, so an archive whose writer
+ * crashed is still consistent up to its last indexed game.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public final class GameArchive {
+
+    /**
+     * The first four bytes of the data file, {@code "DOMA"}.
+     */
+    static final int DATA_MAGIC = 0x444F4D41;
+
+    /**
+     * The first four bytes of the index file, {@code "DOMI"}.
+     */
+    static final int INDEX_MAGIC = 0x444F4D49;
+
+    /**
+     * Version of the format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the data file header in bytes.
+     */
+    static final int DATA_HEADER_BYTES = 5;
+
+    /**
+     * Size of the index file header in bytes, so the offsets are aligned.
+     */
+    static final int INDEX_HEADER_BYTES = 8;
+
+    /**
+     * Size of a game's header in bytes.
+     */
+    static final int GAME_HEADER_BYTES = 21;
+
+    /**
+     * Outcomes stored in the game header.
+     */
+    static final int HUMAN_WON = 0;
+    static final int COMPUTER_WON = 1;
+    static final int TIE = 2;
+    static final int UNFINISHED = 3;
+
+    /**
+     * Largest number of events of one game, limited by the 2-byte count.
+     */
+    static final int MAX_EVENTS = 0xFFFF;
+
+    /**
+     * Base-2 logarithm of the size of a data segment.
+     */
+    private static final int SEGMENT_BITS = 30;
+
+    /**
+     * Bytes by which consecutive segments overlap, more than the largest game.
+     */
+    private static final int SEGMENT_OVERLAP = GAME_HEADER_BYTES + 2 * MAX_EVENTS;
+
+    /**
+     * The rule sets by ordinal.
+     */
+    private static final RuleSet[] RULE_SETS = RuleSet.values();
+
+    /**
+     * The mapped data file, in segments of {@code 2^SEGMENT_BITS} bytes plus the overlap.
+     */
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * The mapped index file.
+     */
+    private final MappedByteBuffer index;
+
+    /**
+     * Number of games in the archive.
+     */
+    private final int size;
+
+    /**
+     * Maps an archive.
+     *
+     * @param dataFile  the data file
+     * @param indexFile the index file
+     * @throws IOException if the files cannot be mapped or do not hold an archive
+     */
+    private GameArchive(FileChannel dataFile, FileChannel indexFile) throws IOException {
+        long indexBytes = indexFile.size();
+        if (indexBytes < INDEX_HEADER_BYTES || indexBytes - INDEX_HEADER_BYTES > Integer.MAX_VALUE - 7) {
+            throw new IOException("Not a game archive index.");
+        }
+        index = indexFile.map(FileChannel.MapMode.READ_ONLY, 0, indexBytes);
+        if (index.getInt(0) != INDEX_MAGIC || index.getInt(4) != VERSION) {
+            throw new IOException("Not a game archive index.");
+        }
+        long dataBytes = dataFile.size();
+        int segmentCount = (int) Math.max(1, (dataBytes + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS);
+        segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long start = (long) i << SEGMENT_BITS;
+            long length = Math.min(dataBytes - start, (1L << SEGMENT_BITS) + SEGMENT_OVERLAP);
+            segments[i] = dataFile.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, length));
+        }
+        if (dataBytes < DATA_HEADER_BYTES || segments[0].getInt(0) != DATA_MAGIC || segments[0].get(4) != VERSION) {
+            throw new IOException("Not a game archive.");
+        }
+        // Drop a last game whose data never made it to the disk.
+        int games = (int) ((indexBytes - INDEX_HEADER_BYTES) / 8);
+        while (games > 0 && end(games - 1, dataBytes) > dataBytes) {
+            games--;
+        }
+        size = games;
+    }
+
+    /**
+     * Opens an archive from its data file; the index file is found next to it.
+     *
+     * @param dataFile the data file
+     * @return the mapped archive
+     * @throws IOException if the files cannot be mapped or do not hold an archive
+     */
+    public static GameArchive open(Path dataFile) throws IOException {
+        // The mappings stay valid after the channels are closed, until they are collected.
+        try (FileChannel data = FileChannel.open(dataFile, StandardOpenOption.READ);
+             FileChannel index = FileChannel.open(indexFileOf(dataFile), StandardOpenOption.READ)) {
+            return new GameArchive(data, index);
+        }
+    }
+
+    /**
+     * Retrieves the index file belonging to a data file.
+     *
+     * @param dataFile the data file
+     * @return the index file
+     */
+    static Path indexFileOf(Path dataFile) {
+        return dataFile.resolveSibling(dataFile.getFileName() + ".idx");
+    }
+
+    /**
+     * Retrieves the number of games in the archive.
+     *
+     * @return the number of games
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the maximum number of dots of a game's domino set.
+     *
+     * @param game the game number, from 0 to {@link #size()} - 1
+     * @return the maximum number of dots
+     */
+    public int getMaxDots(int game) {
+        return Byte.toUnsignedInt(segment(game).get(local(game)));
+    }
+
+    /**
+     * Retrieves the rules a game was played with.
+     *
+     * @param game the game number
+     * @return the rule set
+     */
+    public RuleSet getRuleSet(int game) {
+        return RULE_SETS[segment(game).get(local(game) + 1)];
+    }
+
+    /**
+     * Retrieves the seed a game was dealt from.
+     *
+     * @param game the game number
+     * @return the game seed
+     */
+    public long getSeed(int game) {
+        return segment(game).getLong(local(game) + 2);
+    }
+
+    /**
+     * Checks if a game was played to its end.
+     *
+     * @param game the game number
+     * @return {@code true} if the game is over; {@code false} if it was abandoned
+     */
+    public boolean isFinished(int game) {
+        return outcome(game) != UNFINISHED;
+    }
+
+    /**
+     * Retrieves the winner of a finished game.
+     *
+     * @param game the game number
+     * @return the winner, or null for a tie or an unfinished game
+     */
+    public Players getWinner(int game) {
+        int outcome = outcome(game);
+        return outcome == HUMAN_WON ? Players.Human : outcome == COMPUTER_WON ? Players.Computer : null;
+    }
+
+    /**
+     * Retrieves the dots a player had left when the game ended.
+     *
+     * @param game   the game number
+     * @param player the player
+     * @return the sum of the dots in the player's tray
+     */
+    public int getPipTotal(int game, Players player) {
+        return Short.toUnsignedInt(segment(game).getShort(local(game) + (player == Players.Human ? 11 : 13)));
+    }
+
+    /**
+     * Retrieves the points a player had scored when the game ended.
+     *
+     * @param game   the game number
+     * @param player the player
+     * @return the player's points
+     */
+    public int getScore(int game, Players player) {
+        return Short.toUnsignedInt(segment(game).getShort(local(game) + (player == Players.Human ? 15 : 17)));
+    }
+
+    /**
+     * Retrieves the number of events of a game.
+     *
+     * @param game the game number
+     * @return the number of plays, draws and passes
+     */
+    public int getEventCount(int game) {
+        return Short.toUnsignedInt(segment(game).getShort(local(game) + 19));
+    }
+
+    /**
+     * Retrieves one event of a game, read straight from the mapped file.
+     *
+     * @param game  the game number
+     * @param event the index of the event, from 0 to {@link #getEventCount(int)} - 1
+     * @return a move, {@link GameRecords#DRAW} or {@link GameRecords#PASS}
+     */
+    public int getEvent(int game, int event) {
+        if (event < 0 || event >= getEventCount(game)) {
+            throw new IllegalArgumentException("Event index out of range: " + event);
+        }
+        MappedByteBuffer segment = segment(game);
+        int start = local(game);
+        int width = GameRecords.eventWidth(Byte.toUnsignedInt(segment.get(start)));
+        int position = start + GAME_HEADER_BYTES + event * width;
+        int code = width == 1 ? Byte.toUnsignedInt(segment.get(position)) : Short.toUnsignedInt(segment.getShort(position));
+        return GameRecords.decode(code, width);
+    }
+
+    /**
+     * Finds the next finished game with the given winner.
+     *
+     * @param winner the winner, or null for ties
+     * @param from   the game number to start at
+     * @return the number of the first such game at or after {@code from}, or -1 if there is none
+     */
+    public int nextWonBy(Players winner, int from) {
+        int wanted = winner == Players.Human ? HUMAN_WON : winner == Players.Computer ? COMPUTER_WON : TIE;
+        for (int game = Math.max(0, from); game < size; game++) {
+            if (outcome(game) == wanted) {
+                return game;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates a new game in the deal of an archived game, ready for its events to be
+     * replayed with {@link GameRecords#apply(GameEngine, int)}.
+     *
+     * @param game the game number
+     * @return the dealt game
+     */
+    public GameEngine newGame(int game) {
+        GameEngine engine = new GameEngine(getMaxDots(game), getSeed(game), getRuleSet(game));
+        engine.deal();
+        return engine;
+    }
+
+    /**
+     * Retrieves the stored outcome of a game.
+     *
+     * @param game the game number
+     * @return one of the outcome constants
+     */
+    private int outcome(int game) {
+        return segment(game).get(local(game) + 10);
+    }
+
+    /**
+     * Retrieves the offset of a game in the data file.
+     *
+     * @param game the game number
+     * @return the offset in bytes
+     */
+    private long offset(int game) {
+        if (game < 0 || game >= size) {
+            throw new IllegalArgumentException("Game number out of range: " + game);
+        }
+        return index.getLong(INDEX_HEADER_BYTES + 8 * game);
+    }
+
+    /**
+     * Retrieves the segment holding a game.
+     *
+     * @param game the game number
+     * @return the mapped segment
+     */
+    private MappedByteBuffer segment(int game) {
+        return segments[(int) (offset(game) >>> SEGMENT_BITS)];
+    }
+
+    /**
+     * Retrieves the offset of a game within its segment.
+     *
+     * @param game the game number
+     * @return the offset in bytes
+     */
+    private int local(int game) {
+        return (int) (offset(game) & ((1L << SEGMENT_BITS) - 1));
+    }
+
+    /**
+     * Computes where a game ends in the data file, while the archive is being opened.
+     *
+     * @param game      the game number, below the number of index entries
+     * @param dataBytes the size of the data file
+     * @return the offset after the game's last event, or more than the file size if its
+     *         header is not all there
+     */
+    private long end(int game, long dataBytes) {
+        long offset = index.getLong(INDEX_HEADER_BYTES + 8 * game);
+        if (offset < DATA_HEADER_BYTES || offset + GAME_HEADER_BYTES > dataBytes) {
+            return Long.MAX_VALUE;
+        }
+        MappedByteBuffer segment = segments[(int) (offset >>> SEGMENT_BITS)];
+        int start = (int) (offset & ((1L << SEGMENT_BITS) - 1));
+        int width = GameRecords.eventWidth(Byte.toUnsignedInt(segment.get(start)));
+        return offset + GAME_HEADER_BYTES + (long) width * Short.toUnsignedInt(segment.getShort(start + 19));
+    }
+}
@@ -0,0 +1,406 @@
+package domino;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Appends games to an archive in the format of {@link GameArchive}.
+ *
+ * <p>The writer is a {@link GameRecorder}: set it on an engine with
+ * {@link GameEngine#setRecorder(GameRecorder)} before the deal and every game played on that
+ * engine is appended once it ends. A game's events are collected in a reused array while it
+ * is played, since its header holds the outcome; at the end the header and the events go into
+ * the data buffer and the game's offset into the index buffer. Both buffers are written to
+ * their files when they fill up, the data always before the index, so nothing is allocated
+ * per game. A game that is not played to the end is stored as unfinished when the writer is
+ * closed or the next game starts.</p>
+ *
+ * <p>A writer must only be used by one thread, and an archive must only have one writer at
+ * a time.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public final class GameArchiveWriter implements GameRecorder, Closeable {
+
+    /**
+     * Size of the data buffer in bytes; larger than any game.
+     */
+    private static final int DATA_BUFFER_SIZE = 1 << 18;
+
+    /**
+     * Size of the index buffer in bytes.
+     */
+    private static final int INDEX_BUFFER_SIZE = 1 << 13;
+
+    /**
+     * The data file.
+     */
+    private final FileChannel dataFile;
+
+    /**
+     * The index file.
+     */
+    private final FileChannel indexFile;
+
+    /**
+     * Holds the games not yet written to the data file.
+     */
+    private final ByteBuffer data = ByteBuffer.allocateDirect(DATA_BUFFER_SIZE);
+
+    /**
+     * Holds the offsets not yet written to the index file.
+     */
+    private final ByteBuffer index = ByteBuffer.allocateDirect(INDEX_BUFFER_SIZE);
+
+    /**
+     * Offset in the data file at which the next game goes.
+     */
+    private long dataEnd;
+
+    /**
+     * Number of games in the archive, including those still buffered.
+     */
+    private int size;
+
+    /**
+     * The game being recorded, or null between games.
+     */
+    private GameEngine game;
+
+    /**
+     * The events of the game being recorded in {@code events[0..eventCount)}.
+     */
+    private int[] events = new int[256];
+
+    /**
+     * Number of events of the game being recorded.
+     */
+    private int eventCount;
+
+    /**
+     * Opens an archive for appending, creating its files if they do not exist. Whatever a
+     * crashed writer left after the last indexed game is dropped. The end of the archive is
+     * found with plain reads rather than by mapping it, since a mapped file cannot be
+     * truncated on every platform.
+     *
+     * @param dataFile the data file; the index file is next to it
+     * @throws IOException if the files cannot be opened or do not hold an archive
+     */
+    public GameArchiveWriter(Path dataFile) throws IOException {
+        Path indexPath = GameArchive.indexFileOf(dataFile);
+        boolean exists = Files.exists(indexPath) && Files.size(indexPath) > 0;
+        this.dataFile = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            this.indexFile = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            this.dataFile.close();
+            throw e;
+        }
+        try {
+            if (exists) {
+                findEnd();
+                long indexEnd = GameArchive.INDEX_HEADER_BYTES + 8L * size;
+                this.dataFile.truncate(dataEnd).position(dataEnd);
+                this.indexFile.truncate(indexEnd).position(indexEnd);
+            } else {
+                dataEnd = GameArchive.DATA_HEADER_BYTES;
+                this.dataFile.truncate(0);
+                this.indexFile.truncate(0);
+                data.putInt(GameArchive.DATA_MAGIC).put((byte) GameArchive.VERSION);
+                index.putInt(GameArchive.INDEX_MAGIC).putInt(GameArchive.VERSION);
+                flush();
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts collecting the events of a game.
+     *
+     * @param engine the game, just dealt
+     */
+    @Override
+    public void gameStarted(GameEngine engine) {
+        endGame();
+        game = engine;
+        eventCount = 0;
+    }
+
+    /**
+     * Collects a move.
+     *
+     * @param move the move
+     */
+    @Override
+    public void played(int move) {
+        event(move);
+    }
+
+    /**
+     * Collects a draw.
+     */
+    @Override
+    public void drew() {
+        event(GameRecords.DRAW);
+    }
+
+    /**
+     * Collects a pass.
+     */
+    @Override
+    public void passed() {
+        event(GameRecords.PASS);
+    }
+
+    /**
+     * Appends the finished game with its outcome.
+     *
+     * @param engine the finished game
+     */
+    @Override
+    public void gameEnded(GameEngine engine) {
+        endGame();
+    }
+
+    /**
+     * Appends every game of a record file by replaying it, so that recorded tournaments can be
+     * archived afterwards.
+     *
+     * @param recordFile a file written by {@link GameRecordWriter}
+     * @return the number of games appended
+     * @throws IOException if the record file cannot be read or holds an illegal event
+     */
+    public int importRecords(Path recordFile) throws IOException {
+        int games = 0;
+        try (GameRecordReader reader = GameRecordReader.open(recordFile)) {
+            while (reader.next()) {
+                GameEngine engine = new GameEngine(reader.getMaxDots(), reader.getSeed(), reader.getRuleSet());
+                engine.setRecorder(this);
+                engine.deal();
+                for (int i = 0; i < reader.getEventCount(); i++) {
+                    if (!GameRecords.apply(engine, reader.getEvent(i))) {
+                        throw new IOException("Illegal event " + i + " in game " + games + " of " + recordFile + ".");
+                    }
+                }
+                endGame();
+                games++;
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Retrieves the number of games in the archive.
+     *
+     * @return the number of games, including those appended by this writer
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes every buffered game to the files, the data before the index.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    public void flush() throws IOException {
+        write(dataFile, data);
+        write(indexFile, index);
+    }
+
+    /**
+     * Appends the game in progress as unfinished, flushes and closes the files.
+     *
+     * @throws IOException if the files cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            endGame();
+            flush();
+        } finally {
+            try {
+                dataFile.close();
+            } finally {
+                indexFile.close();
+            }
+        }
+    }
+
+    /**
+     * Imports record files into an archive and prints how the archived games ended.
+     *
+     * @param args the archive's data file followed by the record files
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: GameArchiveWriter <archive> [record files...]");
+            return;
+        }
+        Path dataFile = Path.of(args[0]);
+        try (GameArchiveWriter writer = new GameArchiveWriter(dataFile)) {
+            for (int i = 1; i < args.length; i++) {
+                System.out.println(args[i] + ": " + writer.importRecords(Path.of(args[i])) + " games");
+            }
+        }
+        GameArchive archive = GameArchive.open(dataFile);
+        int[] outcomes = new int[GameArchive.UNFINISHED + 1];
+        for (int game = 0; game < archive.size(); game++) {
+            Players winner = archive.getWinner(game);
+            outcomes[!archive.isFinished(game) ? GameArchive.UNFINISHED : winner == Players.Human
+                    ? GameArchive.HUMAN_WON : winner == Players.Computer ? GameArchive.COMPUTER_WON : GameArchive.TIE]++;
+        }
+        System.out.printf("%d games: %d human wins, %d computer wins, %d ties, %d unfinished%n", archive.size(),
+                outcomes[GameArchive.HUMAN_WON], outcomes[GameArchive.COMPUTER_WON], outcomes[GameArchive.TIE],
+                outcomes[GameArchive.UNFINISHED]);
+    }
+
+    /**
+     * Collects an event of the game in progress. Events before the first game started are
+     * ignored.
+     *
+     * @param event a move, {@link GameRecords#DRAW} or {@link GameRecords#PASS}
+     */
+    private void event(int event) {
+        if (game == null) {
+            return;
+        }
+        if (eventCount == events.length) {
+            if (eventCount == GameArchive.MAX_EVENTS) {
+                throw new IllegalStateException("Game too long to archive.");
+            }
+            events = Arrays.copyOf(events, Math.min(2 * events.length, GameArchive.MAX_EVENTS));
+        }
+        events[eventCount++] = event;
+    }
+
+    /**
+     * Appends the game in progress, if there is one, and its index entry.
+     *
+     * @throws UncheckedIOException if the files cannot be written
+     */
+    private void endGame() {
+        if (game == null) {
+            return;
+        }
+        GameEngine engine = game;
+        game = null;
+        int maxDots = engine.getDominoSet().getDominoRange() - 1;
+        int width = GameRecords.eventWidth(maxDots);
+        int bytes = GameArchive.GAME_HEADER_BYTES + width * eventCount;
+        try {
+            if (data.remaining() < bytes) {
+                flush();
+            }
+            if (index.remaining() < 8) {
+                flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Players winner = engine.getWinner();
+        int outcome = !engine.isTerminal() ? GameArchive.UNFINISHED
+                : winner == Players.Human ? GameArchive.HUMAN_WON
+                : winner == Players.Computer ? GameArchive.COMPUTER_WON : GameArchive.TIE;
+        data.put((byte) maxDots)
+                .put((byte) engine.getRules().getRuleSet().ordinal())
+                .putLong(engine.getSeed())
+                .put((byte) outcome)
+                .putShort((short) engine.pipTotal(Players.Human))
+                .putShort((short) engine.pipTotal(Players.Computer))
+                .putShort((short) engine.getScore(Players.Human))
+                .putShort((short) engine.getScore(Players.Computer))
+                .putShort((short) eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            int code = GameRecords.encode(events[i], width);
+            if (width == 1) {
+                data.put((byte) code);
+            } else {
+                data.putShort((short) code);
+            }
+        }
+        index.putLong(dataEnd);
+        dataEnd += bytes;
+        size++;
+    }
+
+    /**
+     * Checks the headers of an existing archive and finds its last game whose data is all
+     * there, setting the number of games and the end of the data. Later index entries are
+     * what a crashed writer left behind.
+     *
+     * @throws IOException if the files cannot be read or do not hold an archive
+     */
+    private void findEnd() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GameArchive.GAME_HEADER_BYTES);
+        if (!read(dataFile, header, 0, GameArchive.DATA_HEADER_BYTES)
+                || header.getInt(0) != GameArchive.DATA_MAGIC || header.get(4) != GameArchive.VERSION
+                || !read(indexFile, header, 0, GameArchive.INDEX_HEADER_BYTES)
+                || header.getInt(0) != GameArchive.INDEX_MAGIC || header.getInt(4) != GameArchive.VERSION) {
+            throw new IOException("Not a game archive.");
+        }
+        long dataBytes = dataFile.size();
+        size = (int) ((indexFile.size() - GameArchive.INDEX_HEADER_BYTES) / 8);
+        dataEnd = GameArchive.DATA_HEADER_BYTES;
+        for (; size > 0; size--) {
+            read(indexFile, header, GameArchive.INDEX_HEADER_BYTES + 8L * (size - 1), 8);
+            long offset = header.getLong(0);
+            if (offset < GameArchive.DATA_HEADER_BYTES || !read(dataFile, header, offset, GameArchive.GAME_HEADER_BYTES)) {
+                continue;
+            }
+            int width = GameRecords.eventWidth(Byte.toUnsignedInt(header.get(0)));
+            long end = offset + GameArchive.GAME_HEADER_BYTES + (long) width * Short.toUnsignedInt(header.getShort(19));
+            if (end <= dataBytes) {
+                dataEnd = end;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads bytes from a given position of a file into the start of a buffer.
+     *
+     * @param channel  the file
+     * @param buffer   the buffer, large enough
+     * @param position the position in the file
+     * @param bytes    the number of bytes
+     * @return {@code true} if all the bytes were read; {@code false} if the file ends first
+     * @throws IOException if the file cannot be read
+     */
+    private static boolean read(FileChannel channel, ByteBuffer buffer, long position, int bytes) throws IOException {
+        buffer.clear().limit(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a buffer to its file and empties it.
+     *
+     * @param channel the file
+     * @param buffer  the buffer
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
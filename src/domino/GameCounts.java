@@ -0,0 +1,117 @@
+package domino;
+
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+
+/**
+ * The public counts of a game as JavaFX observable properties: the boneyard size, both tray
+ * sizes and both scores. The GUI binds its labels to them, so a label is only laid out again
+ * when its count actually changes.
+ *
+ * <p>The counts follow the engine through {@link GameEngine#setChangeListener(Runnable)}.
+ * The board and players themselves stay free of JavaFX, since simulations move tiles
+ * millions of times a second. Setting a property to its current value notifies no-one, so
+ * refreshing all counts after every change costs nothing for those that stayed the same.
+ * The properties must only be read and updated on the FX thread.</p>
+ *
+ * @author Krishna Sedhain
+ */
+final class GameCounts {
+
+    /**
+     * The game being followed.
+     */
+    private final GameEngine engine;
+
+    /**
+     * Number of dominos in the boneyard.
+     */
+    private final ReadOnlyIntegerWrapper boneyard = new ReadOnlyIntegerWrapper(this, "boneyard");
+
+    /**
+     * Number of dominos in the human's tray.
+     */
+    private final ReadOnlyIntegerWrapper humanTray = new ReadOnlyIntegerWrapper(this, "humanTray");
+
+    /**
+     * Number of dominos in the computer's tray.
+     */
+    private final ReadOnlyIntegerWrapper computerTray = new ReadOnlyIntegerWrapper(this, "computerTray");
+
+    /**
+     * Points scored by the human.
+     */
+    private final ReadOnlyIntegerWrapper humanScore = new ReadOnlyIntegerWrapper(this, "humanScore");
+
+    /**
+     * Points scored by the computer.
+     */
+    private final ReadOnlyIntegerWrapper computerScore = new ReadOnlyIntegerWrapper(this, "computerScore");
+
+    /**
+     * Constructs the counts of a game and starts following it.
+     *
+     * @param engine the game
+     */
+    GameCounts(GameEngine engine) {
+        this.engine = engine;
+        refresh();
+        engine.setChangeListener(this::refresh);
+    }
+
+    /**
+     * Reads the counts from the engine. Properties whose value did not change fire nothing.
+     */
+    void refresh() {
+        boneyard.set(engine.getBoard().getBoneyardSize());
+        humanTray.set(engine.getPlayer(Players.Human).getTraySize());
+        computerTray.set(engine.getPlayer(Players.Computer).getTraySize());
+        humanScore.set(engine.getScore(Players.Human));
+        computerScore.set(engine.getScore(Players.Computer));
+    }
+
+    /**
+     * Retrieves the number of dominos in the boneyard.
+     *
+     * @return the observable count
+     */
+    ReadOnlyIntegerProperty boneyardProperty() {
+        return boneyard.getReadOnlyProperty();
+    }
+
+    /**
+     * Retrieves the number of dominos in the human's tray.
+     *
+     * @return the observable count
+     */
+    ReadOnlyIntegerProperty humanTrayProperty() {
+        return humanTray.getReadOnlyProperty();
+    }
+
+    /**
+     * Retrieves the number of dominos in the computer's tray.
+     *
+     * @return the observable count
+     */
+    ReadOnlyIntegerProperty computerTrayProperty() {
+        return computerTray.getReadOnlyProperty();
+    }
+
+    /**
+     * Retrieves the points scored by the human.
+     *
+     * @return the observable score
+     */
+    ReadOnlyIntegerProperty humanScoreProperty() {
+        return humanScore.getReadOnlyProperty();
+    }
+
+    /**
+     * Retrieves the points scored by the computer.
+     *
+     * @return the observable score
+     */
+    ReadOnlyIntegerProperty computerScoreProperty() {
+        return computerScore.getReadOnlyProperty();
+    }
+}
@@ -0,0 +1,940 @@
+package domino;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * The GameEngine class holds the complete rules and state of a two player domino game
+ * without doing any console or GUI input/output. The console {@link Main} and the JavaFX
+ * {@link GUI} are thin front-ends over it, and batch simulations can drive it directly.
+ *
+ * <p>The game is played with one {@link RuleSet}, compiled into {@link Rules} when the
+ * engine is built. With the default {@link RuleSet#ZeroWildcard} rules a domino with 0 on
+ * either side is treated as a wildcard that matches any open end. The human always moves
+ * first. A player without a valid play draws from the boneyard, unless the rules forbid
+ * drawing; when it cannot draw the player passes. The game ends as soon as a player empties
+ * their tray, or when both players pass in a row. The winner then scores the dots left in
+ * the loser's tray. The player with fewer dots left wins, or under {@link RuleSet#AllFives}
+ * the player with more points.</p>
+ *
+ * <p>Internally the engine works on tile indices and placements of a {@link DominoSet},
+ * so a move never allocates; {@link Domino} views are only created for the front-ends.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public class GameEngine {
+
+    /**
+     * Smallest maximum number of dots accepted by the front-ends.
+     */
+    public static final int MIN_SET_DOTS = 3;
+
+    /**
+     * Largest maximum number of dots accepted by the front-ends (a double-18 set of 190 tiles).
+     * The engine itself works with any set size.
+     */
+    public static final int MAX_SET_DOTS = 18;
+
+    /**
+     * The policy used by {@link #step()}.
+     */
+    private static final Strategy FIRST_FIT = new FirstFitStrategy();
+
+    /**
+     * The game board containing the boneyard and the played dominos.
+     */
+    private final Board board;
+
+    /**
+     * The domino set the game is played with.
+     */
+    private final DominoSet dominoSet;
+
+    /**
+     * The rules of the game, compiled for the domino set.
+     */
+    private final Rules rules;
+
+    /**
+     * The compiled matching predicate of the rules.
+     */
+    private final MoveTable moveTable;
+
+    /**
+     * The human player.
+     */
+    private final Player human;
+
+    /**
+     * The computer player.
+     */
+    private final Player computer;
+
+    /**
+     * Tracks whose turn it is.
+     */
+    private Players currentPlayer = Players.Human;
+
+    /**
+     * Points scored by each player, indexed by the ordinal of the player type.
+     */
+    private final int[] scores = new int[2];
+
+    /**
+     * Number of passes in a row; two passes in a row block the game.
+     */
+    private int consecutivePasses;
+
+    /**
+     * Flag to indicate if the game has ended.
+     */
+    private boolean gameOver;
+
+    /**
+     * The winner once the game is over, or null for a tie.
+     */
+    private Players winner;
+
+    /**
+     * The placement made by the last move, or -1 if the last move was a pass.
+     */
+    private int lastPlacement = -1;
+
+    /**
+     * The side on which the last domino was placed.
+     */
+    private Side lastSide;
+
+    /**
+     * Number of dominos drawn from the boneyard during the last computer step.
+     */
+    private int lastDrawCount;
+
+    /**
+     * Number of turns (plays and passes) taken so far.
+     */
+    private int turnCount;
+
+    /**
+     * Reusable buffer for the legal moves of the computer player; a tile fits at most two
+     * ways on each of the two ends.
+     */
+    private final int[] moveBuffer;
+
+    /**
+     * Reusable buffer for the hidden tiles when they are dealt again, also used to count the
+     * tiles of a restored snapshot.
+     */
+    private final int[] hiddenBuffer;
+
+    /**
+     * Notified after every change to the trays, the boneyard, the scores or the turn, or null.
+     */
+    private Runnable changeListener;
+
+    /**
+     * Receives every event of the game so it can be recorded, or null.
+     */
+    private GameRecorder recorder;
+
+    /**
+     * Constructs a new game with a domino set of the given maximum number of dots, played
+     * with the zero-wildcard rules. The dominos are not dealt until {@link #deal()} is called.
+     *
+     * @param maxDots the maximum number of dots for any side of a domino
+     */
+    public GameEngine(int maxDots) {
+        this(maxDots, RuleSet.ZeroWildcard);
+    }
+
+    /**
+     * Constructs a new game with a domino set of the given maximum number of dots.
+     * The dominos are not dealt until {@link #deal()} is called.
+     *
+     * @param maxDots the maximum number of dots for any side of a domino
+     * @param ruleSet the rules of the game
+     */
+    public GameEngine(int maxDots, RuleSet ruleSet) {
+        this(new Board(maxDots), ruleSet);
+    }
+
+    /**
+     * Constructs a new game whose set is shuffled from the given seed, so the same seed
+     * always produces the same deal.
+     *
+     * @param maxDots the maximum number of dots for any side of a domino
+     * @param seed    the game seed
+     */
+    public GameEngine(int maxDots, long seed) {
+        this(maxDots, seed, RuleSet.ZeroWildcard);
+    }
+
+    /**
+     * Constructs a new game with the given rules whose set is shuffled from the given seed,
+     * so the same seed always produces the same deal.
+     *
+     * @param maxDots the maximum number of dots for any side of a domino
+     * @param seed    the game seed
+     * @param ruleSet the rules of the game
+     */
+    public GameEngine(int maxDots, long seed, RuleSet ruleSet) {
+        this(new Board(maxDots, seed), ruleSet);
+    }
+
+    /**
+     * Constructs a new game whose set is shuffled with the next seed of the given generator.
+     *
+     * @param maxDots the maximum number of dots for any side of a domino
+     * @param random  the generator the game seed is taken from
+     */
+    public GameEngine(int maxDots, RandomGenerator random) {
+        this(new Board(maxDots, random), RuleSet.ZeroWildcard);
+    }
+
+    /**
+     * Constructs a new game on the given board.
+     *
+     * @param board   the freshly shuffled board
+     * @param ruleSet the rules of the game
+     */
+    private GameEngine(Board board, RuleSet ruleSet) {
+        if (ruleSet == null) {
+            throw new IllegalArgumentException("Rule set must not be null.");
+        }
+        this.board = board;
+        this.dominoSet = board.getDominoSet();
+        this.rules = Rules.of(dominoSet, ruleSet);
+        this.moveTable = rules.getMoveTable();
+        this.human = new Player(Players.Human, dominoSet);
+        this.computer = new Player(Players.Computer, dominoSet);
+        this.moveBuffer = new int[4 * dominoSet.size()];
+        this.hiddenBuffer = new int[dominoSet.size()];
+    }
+
+    /**
+     * Clears the game and reshuffles the set so the engine can be reused for a new game.
+     * The dominos are not dealt until {@link #deal()} is called.
+     *
+     * @param random the random generator used to shuffle the set
+     */
+    public void reset(RandomGenerator random) {
+        reset(random.nextLong());
+    }
+
+    /**
+     * Clears the game and reshuffles the set from the given seed so the engine can be reused
+     * for a new game. The dominos are not dealt until {@link #deal()} is called.
+     *
+     * @param seed the game seed
+     */
+    public void reset(long seed) {
+        board.reset(seed);
+        human.clearTray();
+        computer.clearTray();
+        currentPlayer = Players.Human;
+        scores[0] = 0;
+        scores[1] = 0;
+        consecutivePasses = 0;
+        gameOver = false;
+        winner = null;
+        lastPlacement = -1;
+        lastSide = null;
+        lastDrawCount = 0;
+        turnCount = 0;
+        fireChange();
+    }
+
+    /**
+     * Makes this engine an exact copy of another game with the same domino set and rules,
+     * so the copy can be played on without touching the original.
+     *
+     * @param other the game to copy
+     */
+    public void copyFrom(GameEngine other) {
+        board.copyFrom(other.board);
+        human.getTiles().copyFrom(other.human.getTiles());
+        computer.getTiles().copyFrom(other.computer.getTiles());
+        currentPlayer = other.currentPlayer;
+        scores[0] = other.scores[0];
+        scores[1] = other.scores[1];
+        consecutivePasses = other.consecutivePasses;
+        gameOver = other.gameOver;
+        winner = other.winner;
+        lastPlacement = other.lastPlacement;
+        lastSide = other.lastSide;
+        lastDrawCount = other.lastDrawCount;
+        turnCount = other.turnCount;
+        fireChange();
+    }
+
+    /**
+     * Writes the whole state of the game into a snapshot, see {@link GameSnapshots}: the
+     * board, both trays, the turn, the scores and what happened last.
+     *
+     * @param out the buffer the snapshot is written to
+     */
+    void writeSnapshot(ByteBuffer out) {
+        board.writeSnapshot(out);
+        writeTray(out, human);
+        writeTray(out, computer);
+        out.put((byte) currentPlayer.ordinal());
+        out.put((byte) ((gameOver ? 1 : 0) | (winner == null ? 0 : winner.ordinal() + 1) << 1));
+        out.put((byte) consecutivePasses);
+        out.putShort((short) scores[0]).putShort((short) scores[1]);
+        out.putShort((short) lastPlacement);
+        out.put((byte) (lastSide == null ? 0 : lastSide.ordinal() + 1));
+        out.put((byte) lastDrawCount);
+        out.putShort((short) turnCount);
+    }
+
+    /**
+     * Makes this engine the game stored in a snapshot written by
+     * {@link #writeSnapshot(ByteBuffer)} for the same domino set and rules. The recorder is
+     * not told, since no event happened.
+     *
+     * @param in the buffer the snapshot is read from
+     * @throws IllegalArgumentException if the snapshot does not hold a valid game
+     */
+    void readSnapshot(ByteBuffer in) {
+        board.readSnapshot(in);
+        readTray(in, human);
+        readTray(in, computer);
+        int player = in.get();
+        int flags = in.get();
+        if (player < 0 || player > 1 || flags < 0 || flags > 5) {
+            throw new IllegalArgumentException("Corrupt game snapshot.");
+        }
+        currentPlayer = Players.values()[player];
+        gameOver = (flags & 1) != 0;
+        winner = flags >> 1 == 0 ? null : Players.values()[(flags >> 1) - 1];
+        consecutivePasses = in.get();
+        scores[0] = in.getShort();
+        scores[1] = in.getShort();
+        lastPlacement = in.getShort();
+        int side = in.get();
+        if (side < 0 || side > 2) {
+            throw new IllegalArgumentException("Corrupt game snapshot.");
+        }
+        lastSide = side == 0 ? null : Side.values()[side - 1];
+        lastDrawCount = Byte.toUnsignedInt(in.get());
+        turnCount = Short.toUnsignedInt(in.getShort());
+        checkSnapshotTiles();
+        fireChange();
+    }
+
+    /**
+     * Writes a player's tray into a snapshot, its size followed by its tiles.
+     *
+     * @param out    the buffer the snapshot is written to
+     * @param player the player
+     */
+    private static void writeTray(ByteBuffer out, Player player) {
+        TileBits tray = player.getTiles();
+        out.put((byte) tray.size());
+        for (int tile = tray.next(0); tile >= 0; tile = tray.next(tile + 1)) {
+            out.put((byte) tile);
+        }
+    }
+
+    /**
+     * Reads a player's tray back from a snapshot.
+     *
+     * @param in     the buffer the snapshot is read from
+     * @param player the player
+     * @throws IllegalArgumentException if the tray holds a tile outside the set
+     */
+    private void readTray(ByteBuffer in, Player player) {
+        player.clearTray();
+        int size = Byte.toUnsignedInt(in.get());
+        for (int i = 0; i < size; i++) {
+            int tile = Byte.toUnsignedInt(in.get());
+            if (tile >= dominoSet.size()) {
+                throw new IllegalArgumentException("Corrupt game snapshot.");
+            }
+            player.addDominoToPlayerTray(tile);
+        }
+    }
+
+    /**
+     * Checks that a restored game holds every tile of the set exactly once, in the boneyard,
+     * a tray or the line of play. The hidden-tile buffer is borrowed to count the tiles.
+     *
+     * @throws IllegalArgumentException if a tile is missing or held twice
+     */
+    private void checkSnapshotTiles() {
+        Arrays.fill(hiddenBuffer, 0);
+        countTiles(board.getBoneyard());
+        countTiles(human.getTiles());
+        countTiles(computer.getTiles());
+        for (int i = 0; i < board.getPlayedCount(); i++) {
+            hiddenBuffer[DominoSet.tileOf(board.getPlacement(i))]++;
+        }
+        for (int count : hiddenBuffer) {
+            if (count != 1) {
+                throw new IllegalArgumentException("Corrupt game snapshot.");
+            }
+        }
+    }
+
+    /**
+     * Counts the tiles of one holder in the hidden-tile buffer.
+     *
+     * @param tiles the tiles of the boneyard or a tray
+     */
+    private void countTiles(TileBits tiles) {
+        for (int tile = tiles.next(0); tile >= 0; tile = tiles.next(tile + 1)) {
+            hiddenBuffer[tile]++;
+        }
+    }
+
+    /**
+     * Deals the tiles the observer cannot see, the other player's tray and the boneyard,
+     * again at random. Tray and boneyard sizes are kept. Search strategies use this on a
+     * copy of the game to sample what the hidden tiles might be.
+     *
+     * @param observer the player whose view of the game is kept
+     * @param random   the generator used to shuffle the hidden tiles
+     */
+    public void redeal(Players observer, RandomGenerator random) {
+        Player other = observer == Players.Human ? computer : human;
+        TileBits tray = other.getTiles();
+        TileBits boneyard = board.getBoneyard();
+        int count = 0;
+        for (int tile = tray.next(0); tile >= 0; tile = tray.next(tile + 1)) {
+            hiddenBuffer[count++] = tile;
+        }
+        for (int tile = boneyard.next(0); tile >= 0; tile = boneyard.next(tile + 1)) {
+            hiddenBuffer[count++] = tile;
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = hiddenBuffer[i];
+            hiddenBuffer[i] = hiddenBuffer[j];
+            hiddenBuffer[j] = temp;
+        }
+        int traySize = tray.size();
+        other.clearTray();
+        for (int i = 0; i < traySize; i++) {
+            other.addDominoToPlayerTray(hiddenBuffer[i]);
+        }
+        board.refillBoneyard(hiddenBuffer, traySize);
+    }
+
+    /**
+     * Deals the hand size of the rules to the human and then to the computer.
+     * Smaller sets simply deal what is left in the boneyard.
+     */
+    public void deal() {
+        int handSize = rules.getHandSize();
+        for (Players player : Players.values()) {
+            for (int i = 0; i < handSize; i++) {
+                int tile = board.drawFromBoneyard();
+                if (tile >= 0) {
+                    getPlayer(player).addDominoToPlayerTray(tile);
+                }
+            }
+        }
+        if (recorder != null) {
+            recorder.gameStarted(this);
+        }
+        fireChange();
+    }
+
+    /**
+     * Checks if the tile can be placed at the given end of the line of play.
+     * Any tile can be played on an empty board.
+     *
+     * @param tile the tile index to check
+     * @param side the end of the line of play
+     * @return {@code true} if the tile matches that end; {@code false} otherwise
+     */
+    public boolean canPlay(int tile, Side side) {
+        return moveTable.canPlay(tile, openEnd(side), side);
+    }
+
+    /**
+     * Checks if there is at least one valid domino that can be played from the player's tray.
+     * This is an AND of the tray bitset with the playable tiles of the two open ends.
+     *
+     * @param player the player whose tray is checked
+     * @return {@code true} if a valid play exists; {@code false} otherwise
+     */
+    public boolean hasValidPlay(Player player) {
+        return player.getTiles().intersects(moveTable.playable(openEnd(Side.Left), openEnd(Side.Right)));
+    }
+
+    /**
+     * Plays a domino from the current player's tray. If the requested orientation does not
+     * match the chosen end, the domino is turned around so that it does.
+     *
+     * @param index  the index of the domino in the current player's tray
+     * @param side   the end of the line of play to place the domino on
+     * @param rotate {@code true} to rotate the domino before placing it
+     * @return {@code true} if the move was valid and made; {@code false} otherwise
+     */
+    public boolean applyMove(int index, Side side, boolean rotate) {
+        Player player = getPlayer(currentPlayer);
+        if (gameOver || index < 0 || index >= player.getTraySize()) {
+            return false;
+        }
+        int tile = player.getTileFromTray(index);
+        if (!canPlay(tile, side)) {
+            return false;
+        }
+        int placement = DominoSet.placement(tile, rotate);
+        if (!moveTable.fits(placement, openEnd(side), side)) {
+            placement ^= 1;
+        }
+        player.removedDominoFromPlayerTray(index);
+        place(placement, side);
+        endTurn(false);
+        return true;
+    }
+
+    /**
+     * Draws a single domino from the boneyard into the current player's tray.
+     * Drawing is only allowed when the player has no valid play and the rules allow drawing.
+     * The turn does not change.
+     *
+     * @return the drawn tile index, or -1 if drawing is not allowed or the boneyard is empty
+     */
+    public int draw() {
+        Player player = getPlayer(currentPlayer);
+        if (gameOver || !rules.allowsDrawing() || hasValidPlay(player)) {
+            return -1;
+        }
+        int tile = board.drawFromBoneyard();
+        if (tile >= 0) {
+            player.addDominoToPlayerTray(tile);
+            if (recorder != null) {
+                recorder.drew();
+            }
+            fireChange();
+        }
+        return tile;
+    }
+
+    /**
+     * Passes the turn. Passing is only allowed when the current player has no valid play
+     * and cannot draw, see {@link #mustPass()}.
+     *
+     * @return {@code true} if the turn was passed; {@code false} otherwise
+     */
+    public boolean pass() {
+        if (!mustPass()) {
+            return false;
+        }
+        lastPlacement = -1;
+        if (recorder != null) {
+            recorder.passed();
+        }
+        endTurn(true);
+        return true;
+    }
+
+    /**
+     * Checks if the current player has to pass: it has no valid play, and either the
+     * boneyard is empty or the rules do not allow drawing.
+     *
+     * @return {@code true} if the only legal action is to pass
+     */
+    public boolean mustPass() {
+        return !gameOver && (board.getBoneyardSize() == 0 || !rules.allowsDrawing())
+                && !hasValidPlay(getPlayer(currentPlayer));
+    }
+
+    /**
+     * Fills the buffer with every legal move of the current player, see {@link Moves}.
+     * The moves come from the {@link MoveTable}: by ascending tile, and for each tile the
+     * moves on the left end before those on the right end, the unflipped orientation before
+     * the flipped one. On an empty board every tile is listed once, unflipped, on the left.
+     *
+     * @param moves the buffer to fill, with room for {@link #maxMoves()} moves
+     * @return the number of legal moves
+     */
+    public int legalMoves(int[] moves) {
+        if (gameOver) {
+            return 0;
+        }
+        return moveTable.legalMoves(getPlayer(currentPlayer).getTiles(), openEnd(Side.Left), openEnd(Side.Right), moves);
+    }
+
+    /**
+     * Retrieves the size of a buffer that can hold the legal moves of any position.
+     *
+     * @return the maximum number of legal moves
+     */
+    public int maxMoves() {
+        return moveBuffer.length;
+    }
+
+    /**
+     * Plays a move of the current player, as generated by {@link #legalMoves(int[])}.
+     *
+     * @param move the move, see {@link Moves}
+     * @return {@code true} if the move was legal and made; {@code false} otherwise
+     */
+    public boolean play(int move) {
+        Player player = getPlayer(currentPlayer);
+        int placement = Moves.placement(move);
+        int tile = DominoSet.tileOf(placement);
+        Side side = Moves.side(move);
+        if (gameOver || tile >= dominoSet.size() || !player.getTiles().contains(tile)
+                || !moveTable.fits(placement, openEnd(side), side)) {
+            return false;
+        }
+        player.removeTileFromPlayerTray(tile);
+        place(placement, side);
+        endTurn(false);
+        return true;
+    }
+
+    /**
+     * Makes a complete computer move for the current player with the original first-fit
+     * policy, see {@link #step(Strategy)}.
+     *
+     * @return {@code true} if a domino was played; {@code false} if the player passed
+     */
+    public boolean step() {
+        return step(FIRST_FIT);
+    }
+
+    /**
+     * Makes a complete computer move for the current player. If the player has a legal move
+     * the strategy picks one; if not, dominos are drawn until a playable one turns up. If the
+     * boneyard runs out first, or the rules do not allow drawing, the player passes.
+     *
+     * @param strategy the policy choosing among the legal moves
+     * @return {@code true} if a domino was played; {@code false} if the player passed
+     */
+    public boolean step(Strategy strategy) {
+        int count = drawUntilPlayable(moveBuffer);
+        return count > 0 && play(moveBuffer[strategy.chooseMove(this, moveBuffer, count)]);
+    }
+
+    /**
+     * Does the part of a computer move that needs no choice: draws for the current player
+     * until it has a legal move, or passes if the boneyard runs out first or the rules do not
+     * allow drawing. A front-end can then search for the move elsewhere and {@link #play} it.
+     *
+     * @param moves receives the legal moves, at least {@link #maxMoves()} long
+     * @return the number of legal moves, or 0 if the player passed or the game is over
+     */
+    public int drawUntilPlayable(int[] moves) {
+        lastDrawCount = 0;
+        if (gameOver) {
+            return 0;
+        }
+        int count;
+        while ((count = legalMoves(moves)) == 0) {
+            if (draw() < 0) {
+                pass();
+                return 0;
+            }
+            lastDrawCount++;
+        }
+        return count;
+    }
+
+    /**
+     * Plays computer moves for both players until the game is over.
+     *
+     * @return the winner, or null for a tie
+     */
+    public Players playOut() {
+        return playOut(FIRST_FIT, FIRST_FIT);
+    }
+
+    /**
+     * Plays computer moves until the game is over, with a strategy for each seat.
+     *
+     * @param first  the strategy of the player moving first (the human seat)
+     * @param second the strategy of the player moving second (the computer seat)
+     * @return the winner, or null for a tie
+     */
+    public Players playOut(Strategy first, Strategy second) {
+        while (!gameOver) {
+            step(currentPlayer == Players.Human ? first : second);
+        }
+        return winner;
+    }
+
+    /**
+     * Computes the total number of dots left in the player's tray.
+     *
+     * @param player the player to count
+     * @return the sum of the dots on all dominos in the tray
+     */
+    public int pipTotal(Players player) {
+        return getPlayer(player).getTiles().pipTotal(dominoSet);
+    }
+
+    /**
+     * Places the placement on the board, which is assumed to be correctly oriented, and
+     * scores the play for the current player if the rules score plays.
+     *
+     * @param placement the tile and orientation to place
+     * @param side      the end of the line of play
+     */
+    private void place(int placement, Side side) {
+        if (side == Side.Left) {
+            board.placeOnLeft(placement);
+        } else {
+            board.placeOnRight(placement);
+        }
+        if (rules.scoresPlays()) {
+            scores[currentPlayer.ordinal()] += rules.playPoints(board);
+        }
+        lastPlacement = placement;
+        lastSide = side;
+        if (recorder != null) {
+            recorder.played(Moves.of(placement, side));
+        }
+    }
+
+    /**
+     * Retrieves the number of dots on the given open end of the line of play.
+     *
+     * @param side the end of the line of play
+     * @return the number of dots on that end, or -1 while the board is empty
+     */
+    private int openEnd(Side side) {
+        if (board.getPlayedCount() == 0) {
+            return -1;
+        }
+        return side == Side.Left ? board.getLeftEnd() : board.getRightEnd();
+    }
+
+    /**
+     * Finishes the current player's turn, checks if the game has ended and hands the turn
+     * to the other player.
+     *
+     * @param passed {@code true} if the player passed instead of playing
+     */
+    private void endTurn(boolean passed) {
+        turnCount++;
+        consecutivePasses = passed ? consecutivePasses + 1 : 0;
+        checkGameEnd();
+        currentPlayer = currentPlayer == Players.Human ? Players.Computer : Players.Human;
+        fireChange();
+    }
+
+    /**
+     * Notifies the change listener, if there is one.
+     */
+    private void fireChange() {
+        if (changeListener != null) {
+            changeListener.run();
+        }
+    }
+
+    /**
+     * Checks if the game has ended. The hand is won by:
+     * <ul>
+     *     <li>If one player's tray is empty, that player.</li>
+     *     <li>If both players passed in a row, the player with the lower sum of remaining dots.</li>
+     *     <li>If the sums are equal, no-one.</li>
+     * </ul>
+     * The winner of the hand scores the dots left in the loser's tray. Under rules that score
+     * plays the game is then won by the player with more points, otherwise by the winner of
+     * the hand; either way equal results are a tie.
+     */
+    private void checkGameEnd() {
+        Players handWinner;
+        if (getPlayer(currentPlayer).getTraySize() == 0) {
+            handWinner = currentPlayer;
+        } else if (consecutivePasses >= 2) {
+            int humanDots = pipTotal(Players.Human);
+            int computerDots = pipTotal(Players.Computer);
+            handWinner = humanDots < computerDots ? Players.Human
+                    : computerDots < humanDots ? Players.Computer : null;
+        } else {
+            return;
+        }
+        gameOver = true;
+        if (handWinner != null) {
+            Players loser = handWinner == Players.Human ? Players.Computer : Players.Human;
+            scores[handWinner.ordinal()] += rules.handPoints(pipTotal(loser));
+        }
+        if (rules.scoresPlays()) {
+            int humanPoints = scores[Players.Human.ordinal()];
+            int computerPoints = scores[Players.Computer.ordinal()];
+            winner = humanPoints > computerPoints ? Players.Human
+                    : computerPoints > humanPoints ? Players.Computer : null;
+        } else {
+            winner = handWinner;
+        }
+        if (recorder != null) {
+            recorder.gameEnded(this);
+        }
+    }
+
+    /**
+     * Sets the listener notified after every change to the trays, the boneyard, the scores
+     * or the turn. It runs on the thread that changed the game. Simulations and search
+     * copies leave it unset, which costs one null check per change.
+     *
+     * @param listener the listener, or null to remove it
+     */
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    /**
+     * Sets the recorder that receives every event of the game. It must be set before
+     * {@link #deal()} for the game to be recorded from the start. Search copies leave it
+     * unset, which costs one null check per event.
+     *
+     * @param recorder the recorder, or null to stop recording
+     */
+    public void setRecorder(GameRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Retrieves the player object of the given type.
+     *
+     * @param player the player type
+     * @return the matching player
+     */
+    public Player getPlayer(Players player) {
+        return player == Players.Human ? human : computer;
+    }
+
+    /**
+     * Returns the player whose turn it is.
+     *
+     * @return the current player type
+     */
+    public Players getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    /**
+     * Checks if the game is over.
+     *
+     * @return {@code true} if the game has ended
+     */
+    public boolean isTerminal() {
+        return gameOver;
+    }
+
+    /**
+     * Returns the winner of a finished game.
+     *
+     * @return the winning player, or null for a tie or an unfinished game
+     */
+    public Players getWinner() {
+        return winner;
+    }
+
+    /**
+     * Returns a view of the domino placed by the last move, as it lies on the board.
+     *
+     * @return the last played domino, or null if the last move was a pass
+     */
+    public Domino getLastPlayed() {
+        return lastPlacement < 0 ? null : dominoSet.toDomino(lastPlacement);
+    }
+
+    /**
+     * Returns the placement made by the last move.
+     *
+     * @return the last placement, or -1 if the last move was a pass
+     */
+    public int getLastPlacement() {
+        return lastPlacement;
+    }
+
+    /**
+     * Returns the side on which the last domino was placed.
+     *
+     * @return the side of the last play
+     */
+    public Side getLastSide() {
+        return lastSide;
+    }
+
+    /**
+     * Returns how many dominos were drawn during the last call to {@link #step()}.
+     *
+     * @return the number of drawn dominos
+     */
+    public int getLastDrawCount() {
+        return lastDrawCount;
+    }
+
+    /**
+     * Returns the points a player has scored so far.
+     *
+     * @param player the player type
+     * @return the player's score
+     */
+    public int getScore(Players player) {
+        return scores[player.ordinal()];
+    }
+
+    /**
+     * Returns the number of passes made in a row; the game ends at two.
+     *
+     * @return the number of consecutive passes
+     */
+    public int getConsecutivePasses() {
+        return consecutivePasses;
+    }
+
+    /**
+     * Returns the seed the current game was shuffled from.
+     *
+     * @return the game seed
+     */
+    public long getSeed() {
+        return board.getSeed();
+    }
+
+    /**
+     * Returns the number of turns, plays and passes, taken so far.
+     *
+     * @return the number of turns
+     */
+    public int getTurnCount() {
+        return turnCount;
+    }
+
+    /**
+     * Returns the compiled rules of the game.
+     *
+     * @return the rules
+     */
+    public Rules getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns the compiled matching predicate of the game.
+     *
+     * @return the move table
+     */
+    public MoveTable getMoveTable() {
+        return moveTable;
+    }
+
+    /**
+     * Returns the domino set the game is played with.
+     *
+     * @return the domino set
+     */
+    public DominoSet getDominoSet() {
+        return dominoSet;
+    }
+
+    /**
+     * Returns the game board.
+     *
+     * @return the Board instance used in the game
+     */
+    public Board getBoard() {
+        return board;
+    }
+}
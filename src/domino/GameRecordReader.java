@@ -0,0 +1,253 @@
+package domino;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads recorded games from a channel in the format of {@link GameRecords}, one game at a time.
+ *
+ * <p>The channel is read in large blocks into one direct buffer, and {@link #next()} decodes
+ * the next game into reused fields and a reused event array, so iterating over millions of
+ * games allocates nothing per game. The values returned by the getters belong to the current
+ * game and are overwritten by the next call to {@link #next()}. A game cut off at the end of
+ * the file, because its writer was never closed, is skipped.</p>
+ *
+ * <pre>{@code
+ * try (GameRecordReader reader = GameRecordReader.open(path)) {
+ *     while (reader.next()) {
+ *         // reader.getSeed(), reader.getEventCount(), reader.getEvent(i) ...
+ *     }
+ * }
+ * }</pre>
+ *
+ * @author Krishna Sedhain
+ */
+public final class GameRecordReader implements Closeable {
+
+    /**
+     * Size of the read buffer in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The rule sets by ordinal.
+     */
+    private static final RuleSet[] RULE_SETS = RuleSet.values();
+
+    /**
+     * The channel the games are read from.
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * Holds the bytes read but not yet decoded.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Set once the channel has no more bytes.
+     */
+    private boolean endOfInput;
+
+    /**
+     * The maximum number of dots of the current game's domino set.
+     */
+    private int maxDots;
+
+    /**
+     * The rules of the current game.
+     */
+    private RuleSet ruleSet;
+
+    /**
+     * The seed of the current game.
+     */
+    private long seed;
+
+    /**
+     * The events of the current game in {@code events[0..eventCount)}.
+     */
+    private int[] events = new int[256];
+
+    /**
+     * Number of events of the current game.
+     */
+    private int eventCount;
+
+    /**
+     * Constructs a reader over a channel positioned at the start of a record file.
+     *
+     * @param channel the channel
+     * @throws IOException if the channel cannot be read or does not hold game records
+     */
+    public GameRecordReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.limit(0);
+        if (!fill(GameRecords.FILE_HEADER_BYTES) || buffer.getInt() != GameRecords.MAGIC) {
+            throw new IOException("Not a game record file.");
+        }
+        int version = buffer.get();
+        if (version != GameRecords.VERSION) {
+            throw new IOException("Unsupported game record version " + version + ".");
+        }
+    }
+
+    /**
+     * Opens a record file.
+     *
+     * @param path the file
+     * @return a reader positioned before the first game
+     * @throws IOException if the file cannot be read or does not hold game records
+     */
+    public static GameRecordReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new GameRecordReader(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the next game.
+     *
+     * @return {@code true} if there was another finished game; {@code false} at the end
+     * @throws IOException if the channel cannot be read or the data is corrupt
+     */
+    public boolean next() throws IOException {
+        if (!fill(GameRecords.GAME_HEADER_BYTES)) {
+            return false;
+        }
+        maxDots = buffer.get();
+        int rules = buffer.get();
+        if (maxDots < 0 || rules < 0 || rules >= RULE_SETS.length) {
+            throw new IOException("Corrupt game record header.");
+        }
+        ruleSet = RULE_SETS[rules];
+        seed = buffer.getLong();
+        int width = GameRecords.eventWidth(maxDots);
+        int end = GameRecords.endCode(width);
+        eventCount = 0;
+        while (true) {
+            if (!fill(width)) {
+                // The writer of the last game was never closed.
+                return false;
+            }
+            int code = width == 1 ? buffer.get() & 0xFF : buffer.getShort() & 0xFFFF;
+            if (code == end) {
+                return true;
+            }
+            if (eventCount == events.length) {
+                events = Arrays.copyOf(events, 2 * events.length);
+            }
+            events[eventCount++] = GameRecords.decode(code, width);
+        }
+    }
+
+    /**
+     * Retrieves the maximum number of dots of the current game's domino set.
+     *
+     * @return the maximum number of dots
+     */
+    public int getMaxDots() {
+        return maxDots;
+    }
+
+    /**
+     * Retrieves the rules of the current game.
+     *
+     * @return the rule set
+     */
+    public RuleSet getRuleSet() {
+        return ruleSet;
+    }
+
+    /**
+     * Retrieves the seed of the current game.
+     *
+     * @return the game seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Retrieves the number of events of the current game.
+     *
+     * @return the number of plays, draws and passes
+     */
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Retrieves one event of the current game.
+     *
+     * @param index the index of the event, from 0 to {@link #getEventCount()} - 1
+     * @return a move, {@link GameRecords#DRAW} or {@link GameRecords#PASS}
+     */
+    public int getEvent(int index) {
+        if (index < 0 || index >= eventCount) {
+            throw new IllegalArgumentException("Event index out of range: " + index);
+        }
+        return events[index];
+    }
+
+    /**
+     * Creates a new game in the deal of the current game, ready for its events to be
+     * replayed with {@link GameRecords#apply(GameEngine, int)}.
+     *
+     * @return the dealt game
+     */
+    public GameEngine newGame() {
+        GameEngine engine = new GameEngine(maxDots, seed, ruleSet);
+        engine.deal();
+        return engine;
+    }
+
+    /**
+     * Closes the channel.
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Makes sure the buffer holds at least the given number of bytes, reading more from the
+     * channel if needed.
+     *
+     * @param bytes the number of bytes needed
+     * @return {@code true} if they are available; {@code false} if the input ends first
+     * @throws IOException if the channel cannot be read
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        if (endOfInput) {
+            return false;
+        }
+        buffer.compact();
+        try {
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    endOfInput = true;
+                    break;
+                }
+            }
+        } finally {
+            buffer.flip();
+        }
+        return buffer.remaining() >= bytes;
+    }
+}
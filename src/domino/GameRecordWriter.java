@@ -0,0 +1,239 @@
+package domino;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams recorded games into a channel in the format of {@link GameRecords}.
+ *
+ * <p>The writer is a {@link GameRecorder}: set it on an engine with
+ * {@link GameEngine#setRecorder(GameRecorder)} before the deal and every game played on that
+ * engine is appended as it happens. Events go into one reusable buffer that is written to the
+ * channel when it fills up, so recording a move is a bounds check and a store, and nothing is
+ * allocated. Games are only in the file once the writer is flushed or closed. A game that is
+ * not played to the end, for example because the human quit, is ended when the writer is
+ * closed or the next game starts; replaying it leaves a game that is not over.</p>
+ *
+ * <p>A writer must only be used by one thread; parallel simulations give each worker its own
+ * writer and file.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public final class GameRecordWriter implements GameRecorder, Closeable {
+
+    /**
+     * Size of the buffer in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The channel the games are written to.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * Holds the events not yet written to the channel.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Width in bytes of the events of the game being recorded.
+     */
+    private int width;
+
+    /**
+     * Number of games recorded.
+     */
+    private long games;
+
+    /**
+     * {@code true} between the start of a game and its end marker.
+     */
+    private boolean inGame;
+
+    /**
+     * Constructs a writer over a channel positioned where the games go.
+     *
+     * @param channel    the channel
+     * @param fileHeader {@code true} to start with the file header, for a new file
+     */
+    public GameRecordWriter(WritableByteChannel channel, boolean fileHeader) {
+        this.channel = channel;
+        if (fileHeader) {
+            buffer.putInt(GameRecords.MAGIC).put((byte) GameRecords.VERSION);
+        }
+    }
+
+    /**
+     * Creates a record file, replacing any file of that name.
+     *
+     * @param path the file
+     * @return a writer at the start of the new file
+     * @throws IOException if the file cannot be created
+     */
+    public static GameRecordWriter create(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new GameRecordWriter(channel, true);
+    }
+
+    /**
+     * Opens a record file for appending, creating it with its header if it does not exist.
+     *
+     * @param path the file
+     * @return a writer appending to the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static GameRecordWriter append(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        return new GameRecordWriter(channel, channel.size() == 0);
+    }
+
+    /**
+     * Starts a game: writes its header.
+     *
+     * @param engine the game, just dealt
+     */
+    @Override
+    public void gameStarted(GameEngine engine) {
+        endGame();
+        inGame = true;
+        int maxDots = engine.getDominoSet().getDominoRange() - 1;
+        width = GameRecords.eventWidth(maxDots);
+        ensure(GameRecords.GAME_HEADER_BYTES);
+        buffer.put((byte) maxDots).put((byte) engine.getRules().getRuleSet().ordinal()).putLong(engine.getSeed());
+    }
+
+    /**
+     * Records a move.
+     *
+     * @param move the move
+     */
+    @Override
+    public void played(int move) {
+        event(move);
+    }
+
+    /**
+     * Records a draw.
+     */
+    @Override
+    public void drew() {
+        event(GameRecords.DRAW);
+    }
+
+    /**
+     * Records a pass.
+     */
+    @Override
+    public void passed() {
+        event(GameRecords.PASS);
+    }
+
+    /**
+     * Ends the game: writes its end marker.
+     *
+     * @param engine the finished game
+     */
+    @Override
+    public void gameEnded(GameEngine engine) {
+        endGame();
+    }
+
+    /**
+     * Retrieves the number of games recorded so far.
+     *
+     * @return the number of games ended since the writer was created, finished or not
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Writes everything buffered to the channel.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Flushes the buffer and closes the channel.
+     *
+     * @throws IOException if the channel cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            endGame();
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the end marker of the game in progress, if there is one.
+     */
+    private void endGame() {
+        if (inGame) {
+            put(GameRecords.endCode(width));
+            inGame = false;
+            games++;
+        }
+    }
+
+    /**
+     * Encodes and buffers an event. Events before the first game started are ignored.
+     *
+     * @param event a move, {@link GameRecords#DRAW} or {@link GameRecords#PASS}
+     */
+    private void event(int event) {
+        if (inGame) {
+            put(GameRecords.encode(event, width));
+        }
+    }
+
+    /**
+     * Buffers a wire value in the width of the current game.
+     *
+     * @param code the wire value
+     */
+    private void put(int code) {
+        ensure(2);
+        if (width == 1) {
+            buffer.put((byte) code);
+        } else {
+            buffer.putShort((short) code);
+        }
+    }
+
+    /**
+     * Makes room in the buffer, writing it to the channel if needed. The engine cannot handle
+     * checked exceptions, so a failing channel is reported unchecked.
+     *
+     * @param bytes the number of bytes about to be buffered
+     * @throws UncheckedIOException if the channel cannot be written
+     */
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
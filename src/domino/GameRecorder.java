@@ -0,0 +1,46 @@
+package domino;
+
+/**
+ * Receives every event of a game as the engine makes it, so the game can be recorded and
+ * replayed later, see {@link GameEngine#setRecorder(GameRecorder)}.
+ *
+ * <p>The deal is not reported tile by tile: it follows from the seed, the domino set and the
+ * rules, which are all known when the game starts. Likewise a draw is only reported as an
+ * event, since the tile drawn is the next one of the seeded boneyard. The engine calls the
+ * recorder on every move of the game, so implementations must not allocate per event.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public interface GameRecorder {
+
+    /**
+     * Called once the dominos have been dealt.
+     *
+     * @param engine the game; its seed, domino set and rules identify the deal
+     */
+    void gameStarted(GameEngine engine);
+
+    /**
+     * Called after the current player placed a domino.
+     *
+     * @param move the move, see {@link Moves}
+     */
+    void played(int move);
+
+    /**
+     * Called after the current player drew a domino from the boneyard.
+     */
+    void drew();
+
+    /**
+     * Called after the current player passed.
+     */
+    void passed();
+
+    /**
+     * Called once the game is over, after the event that ended it.
+     *
+     * @param engine the finished game
+     */
+    void gameEnded(GameEngine engine);
+}
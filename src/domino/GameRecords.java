@@ -0,0 +1,127 @@
+package domino;
+
+/**
+ * The compact binary format of recorded games, shared by {@link GameRecordWriter} and
+ * {@link GameRecordReader}. All numbers are big-endian.
+ *
+ * <p>A record file starts with the 4-byte magic {@code "DOMR"} and a version byte, followed by
+ * the games back to back. A game is a 10-byte header, its events and an end marker:</p>
+ * <ul>
+ *     <li>the maximum number of dots of the domino set, one byte;</li>
+ *     <li>the ordinal of the {@link RuleSet}, one byte;</li>
+ *     <li>the game seed, eight bytes, from which the deal is shuffled;</li>
+ *     <li>one event per play, draw or pass, in the order they were made;</li>
+ *     <li>the end marker, also written for a game that was abandoned before it was over.</li>
+ * </ul>
+ *
+ * <p>Events are one byte wide for sets up to double-9, whose moves (see {@link Moves}) all fit
+ * below 253, and two bytes wide for larger sets. The three highest values of the width are
+ * reserved: the highest ends the game, the next one is a pass and the one below is a draw.
+ * A draw does not name its tile, since the tile is the next one of the seeded boneyard.
+ * A double-6 game of twenty turns thus takes about 35 bytes.</p>
+ *
+ * <p>Decoded events are plain ints: a move is its non-negative value, {@link #DRAW} and
+ * {@link #PASS} are negative.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public final class GameRecords {
+
+    /**
+     * The first four bytes of a record file, {@code "DOMR"}.
+     */
+    static final int MAGIC = 0x444F4D52;
+
+    /**
+     * Version of the format written after the magic.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the file header in bytes.
+     */
+    static final int FILE_HEADER_BYTES = 5;
+
+    /**
+     * Size of a game's header in bytes.
+     */
+    static final int GAME_HEADER_BYTES = 10;
+
+    /**
+     * A decoded draw event.
+     */
+    public static final int DRAW = -1;
+
+    /**
+     * A decoded pass event.
+     */
+    public static final int PASS = -2;
+
+    /**
+     * Utility class; not instantiated.
+     */
+    private GameRecords() {
+    }
+
+    /**
+     * Computes the width of the events of games played with a domino set.
+     *
+     * @param maxDots the maximum number of dots of the domino set
+     * @return 1 if every move fits in a byte below the reserved values, 2 otherwise
+     */
+    static int eventWidth(int maxDots) {
+        int tiles = (maxDots + 1) * (maxDots + 2) / 2;
+        return 4 * tiles <= 0xFD ? 1 : 2;
+    }
+
+    /**
+     * Retrieves the wire value ending a game.
+     *
+     * @param width the event width in bytes
+     * @return the end marker
+     */
+    static int endCode(int width) {
+        return width == 1 ? 0xFF : 0xFFFF;
+    }
+
+    /**
+     * Encodes an event for the wire.
+     *
+     * @param event a move, {@link #DRAW} or {@link #PASS}
+     * @param width the event width in bytes
+     * @return the wire value
+     */
+    static int encode(int event, int width) {
+        return event >= 0 ? event : endCode(width) - 3 - event;
+    }
+
+    /**
+     * Decodes an event read from the wire. The end marker decodes to the invalid value
+     * {@code -3}; callers test for it with {@link #endCode(int)} first.
+     *
+     * @param code  the wire value
+     * @param width the event width in bytes
+     * @return a move, {@link #DRAW} or {@link #PASS}
+     */
+    static int decode(int code, int width) {
+        int end = endCode(width);
+        return code >= end - 2 ? end - 3 - code : code;
+    }
+
+    /**
+     * Replays one recorded event on a game.
+     *
+     * @param engine the game, in the position before the event
+     * @param event  a move, {@link #DRAW} or {@link #PASS}
+     * @return {@code true} if the event was legal and made; {@code false} otherwise
+     */
+    public static boolean apply(GameEngine engine, int event) {
+        if (event == DRAW) {
+            return engine.draw() >= 0;
+        }
+        if (event == PASS) {
+            return engine.pass();
+        }
+        return engine.play(event);
+    }
+}
@@ -0,0 +1,228 @@
+package domino;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Rebuilds the exact position of a recorded game after any number of its events, for
+ * looking into how a game went wrong.
+ *
+ * <p>The deal is reproduced from the stored seed and the events are applied straight to a
+ * {@link GameEngine} with {@link GameRecords#apply(GameEngine, int)}, without strategies,
+ * listeners or output. While the replay is built the whole game is played through once and
+ * a copy of the engine is kept every {@code interval} events. {@link #seek(int)} then
+ * restores the nearest snapshot at or before the wanted position with
+ * {@link GameEngine#copyFrom(GameEngine)} and applies at most {@code interval - 1} events,
+ * or simply moves on from the current position when that is closer, so seeking anywhere in
+ * the game takes a few microseconds and allocates nothing.</p>
+ *
+ * <pre>{@code
+ * GameReplay replay = GameReplay.of(archive, game, 8);
+ * GameEngine position = replay.seek(17);
+ * // position.getBoard(), position.getPlayer(Players.Human) ...
+ * }</pre>
+ *
+ * <p>A replay is not thread-safe, and the engine returned by {@link #seek(int)} belongs to
+ * the replay: it changes with the next seek and must not be played on.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public final class GameReplay {
+
+    /**
+     * Number of events between snapshots used when none is given.
+     */
+    public static final int DEFAULT_INTERVAL = 8;
+
+    /**
+     * The events of the game.
+     */
+    private final int[] events;
+
+    /**
+     * Number of events between snapshots.
+     */
+    private final int interval;
+
+    /**
+     * Copies of the game after {@code 0, interval, 2 * interval, ...} events.
+     */
+    private final GameEngine[] snapshots;
+
+    /**
+     * The engine the positions are rebuilt on.
+     */
+    private final GameEngine engine;
+
+    /**
+     * Number of events applied to the engine.
+     */
+    private int position;
+
+    /**
+     * Constructs a replay of a game and takes its snapshots.
+     *
+     * @param maxDots  the maximum number of dots of the game's domino set
+     * @param seed     the game seed
+     * @param ruleSet  the rules of the game
+     * @param events   the game's events, copied
+     * @param count    the number of events
+     * @param interval the number of events between snapshots, at least 1
+     * @throws IllegalArgumentException if the interval is below 1 or an event is not legal
+     *                                  in the position it was recorded in
+     */
+    public GameReplay(int maxDots, long seed, RuleSet ruleSet, int[] events, int count, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be at least 1.");
+        }
+        this.events = Arrays.copyOf(events, count);
+        this.interval = interval;
+        this.snapshots = new GameEngine[count / interval + 1];
+        this.engine = new GameEngine(maxDots, seed, ruleSet);
+        engine.deal();
+        for (int i = 0; i < count; i++) {
+            if (i % interval == 0) {
+                snapshot(i / interval);
+            }
+            if (!GameRecords.apply(engine, events[i])) {
+                throw new IllegalArgumentException("Illegal event " + i + " in recorded game.");
+            }
+        }
+        position = count;
+        if (count % interval == 0) {
+            snapshot(count / interval);
+        }
+    }
+
+    /**
+     * Creates a replay of an archived game.
+     *
+     * @param archive  the archive
+     * @param game     the game number
+     * @param interval the number of events between snapshots
+     * @return the replay, positioned at the end of the game
+     */
+    public static GameReplay of(GameArchive archive, int game, int interval) {
+        int count = archive.getEventCount(game);
+        int[] events = new int[count];
+        for (int i = 0; i < count; i++) {
+            events[i] = archive.getEvent(game, i);
+        }
+        return new GameReplay(archive.getMaxDots(game), archive.getSeed(game), archive.getRuleSet(game), events,
+                count, interval);
+    }
+
+    /**
+     * Creates a replay of the current game of a record reader.
+     *
+     * @param reader   the reader, positioned on a game by {@link GameRecordReader#next()}
+     * @param interval the number of events between snapshots
+     * @return the replay, positioned at the end of the game
+     */
+    public static GameReplay of(GameRecordReader reader, int interval) {
+        int count = reader.getEventCount();
+        int[] events = new int[count];
+        for (int i = 0; i < count; i++) {
+            events[i] = reader.getEvent(i);
+        }
+        return new GameReplay(reader.getMaxDots(), reader.getSeed(), reader.getRuleSet(), events, count, interval);
+    }
+
+    /**
+     * Rebuilds the position after the given number of events.
+     *
+     * @param event the number of events to have applied, from 0 (just dealt) to {@link #size()}
+     * @return the engine in that position, owned by the replay
+     */
+    public GameEngine seek(int event) {
+        if (event < 0 || event > events.length) {
+            throw new IllegalArgumentException("Event index out of range: " + event);
+        }
+        int snapshot = event / interval;
+        if (event < position || position < snapshot * interval) {
+            engine.copyFrom(snapshots[snapshot]);
+            position = snapshot * interval;
+        }
+        while (position < event) {
+            GameRecords.apply(engine, events[position++]);
+        }
+        return engine;
+    }
+
+    /**
+     * Retrieves the number of events of the game.
+     *
+     * @return the number of plays, draws and passes
+     */
+    public int size() {
+        return events.length;
+    }
+
+    /**
+     * Retrieves the number of events applied to the current position.
+     *
+     * @return the position, from 0 to {@link #size()}
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Retrieves one event of the game.
+     *
+     * @param index the index of the event, from 0 to {@link #size()} - 1
+     * @return a move, {@link GameRecords#DRAW} or {@link GameRecords#PASS}
+     */
+    public int getEvent(int index) {
+        if (index < 0 || index >= events.length) {
+            throw new IllegalArgumentException("Event index out of range: " + index);
+        }
+        return events[index];
+    }
+
+    /**
+     * Prints the position of an archived game: the line of play, both trays and the
+     * scores after the given number of events.
+     *
+     * @param args the archive's data file, the game number and the number of events, which
+     *             defaults to the whole game
+     * @throws IOException if the archive cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: GameReplay <archive> <game> [events]");
+            return;
+        }
+        GameArchive archive = GameArchive.open(Path.of(args[0]));
+        GameReplay replay = of(archive, Integer.parseInt(args[1]), DEFAULT_INTERVAL);
+        GameEngine position = replay.seek(args.length > 2 ? Integer.parseInt(args[2]) : replay.size());
+        DominoSet dominoSet = position.getDominoSet();
+        ConsoleRenderer out = new ConsoleRenderer(System.out, false);
+        out.text("Game ").number(Integer.parseInt(args[1])).text(" after ").number(replay.getPosition())
+                .text(" of ").number(replay.size()).text(" events, ").text(position.getCurrentPlayer().name())
+                .line(" to move").newLine();
+        out.board(position.getBoard());
+        for (Players player : Players.values()) {
+            out.text(player.name()).text(" (").number(position.getScore(player)).line(" points):");
+            out.tray(dominoSet, position.getPlayer(player));
+        }
+        out.text("Boneyard: ").number(position.getBoard().getBoneyardSize()).line(" tiles");
+        if (position.isTerminal()) {
+            Players winner = position.getWinner();
+            out.line(winner == null ? "Game over: tie" : "Game over: " + winner.name() + " won");
+        }
+        out.flush();
+    }
+
+    /**
+     * Stores a copy of the engine's current position.
+     *
+     * @param index the index of the snapshot
+     */
+    private void snapshot(int index) {
+        GameEngine copy = new GameEngine(engine.getDominoSet().getDominoRange() - 1, engine.getRules().getRuleSet());
+        copy.copyFrom(engine);
+        snapshots[index] = copy;
+    }
+}
@@ -0,0 +1,61 @@
+package domino;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Derives reproducible, independent random streams for games.
+ *
+ * <p>Every deal is shuffled from a single 64-bit game seed. When many games are played, the
+ * seed of game {@code i} is derived from a base seed and {@code i} alone, so a game can be
+ * reproduced from its index no matter which thread played it or in which order, and no two
+ * threads ever share a random generator.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public final class GameSeeds {
+
+    /**
+     * The SplitMix64 increment, an odd constant close to 2^64 divided by the golden ratio.
+     */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Utility class; not instantiated.
+     */
+    private GameSeeds() {
+    }
+
+    /**
+     * Derives the seed of one game in a series.
+     *
+     * @param baseSeed  the seed of the whole series
+     * @param gameIndex the index of the game in the series
+     * @return the game seed
+     */
+    public static long forGame(long baseSeed, long gameIndex) {
+        return mix64(baseSeed + (gameIndex + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Creates the random generator a game seed shuffles the set with.
+     *
+     * @param seed the game seed
+     * @return a new generator for that seed
+     */
+    public static RandomGenerator random(long seed) {
+        return new SplittableRandom(seed);
+    }
+
+    /**
+     * The SplitMix64 finalizer, which spreads every input bit over the whole output.
+     *
+     * @param z the value to mix
+     * @return the mixed value
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
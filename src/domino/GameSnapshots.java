@@ -0,0 +1,215 @@
+package domino;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Saves the full state of a game in a compact binary snapshot and restores it, so a game can
+ * be resumed after quitting, taken back a move, or saved after every move. All numbers are
+ * big-endian.
+ *
+ * <p>A snapshot starts with the 4-byte magic {@code "DOMS"}, a version byte, the maximum
+ * number of dots of the set and the ordinal of the {@link RuleSet}, followed by:</p>
+ * <ul>
+ *     <li>the game seed, eight bytes;</li>
+ *     <li>the boneyard in draw order, a count byte and one byte per tile;</li>
+ *     <li>the line of play from left to right, a count byte and one placement per tile, one
+ *     byte wide for sets up to double-14 and two bytes wide for larger sets;</li>
+ *     <li>the human's and then the computer's tray, a count byte and one byte per tile;</li>
+ *     <li>the player to move, the game-over flag and winner, the passes in a row, both scores,
+ *     the last placement and side, the tiles drawn last and the number of turns.</li>
+ * </ul>
+ *
+ * <p>Every tile of the set is stored exactly once, so a double-6 game takes at most 60 bytes.
+ * The board, the engine and the trays write and read their own fields, much like
+ * {@link GameEngine#copyFrom(GameEngine)}, and restoring into an existing engine allocates
+ * nothing. Saving to a file replaces it atomically, so a crash while saving leaves the
+ * previous save intact.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public final class GameSnapshots {
+
+    /**
+     * The first four bytes of a snapshot, {@code "DOMS"}.
+     */
+    static final int MAGIC = 0x444F4D53;
+
+    /**
+     * Version of the format written after the magic.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the snapshot header in bytes: magic, version, set and rules.
+     */
+    static final int HEADER_BYTES = 7;
+
+    /**
+     * Size in bytes of the seed, the four counts and the engine's own fields.
+     */
+    private static final int FIXED_BYTES = 8 + 4 + 13;
+
+    /**
+     * The rule sets by ordinal.
+     */
+    private static final RuleSet[] RULE_SETS = RuleSet.values();
+
+    /**
+     * Utility class; not instantiated.
+     */
+    private GameSnapshots() {
+    }
+
+    /**
+     * Computes the width of the placements in the line of play of a domino set.
+     *
+     * @param dominoSet the domino set
+     * @return 1 if every placement fits in a byte, 2 otherwise
+     */
+    static int placementWidth(DominoSet dominoSet) {
+        return 2 * dominoSet.size() <= 0x100 ? 1 : 2;
+    }
+
+    /**
+     * Computes the largest snapshot of a game played with a domino set.
+     *
+     * @param dominoSet the domino set
+     * @return the size in bytes a snapshot buffer needs
+     */
+    public static int maxBytes(DominoSet dominoSet) {
+        return HEADER_BYTES + FIXED_BYTES + placementWidth(dominoSet) * dominoSet.size();
+    }
+
+    /**
+     * Writes a snapshot of a game into a buffer.
+     *
+     * @param engine the game
+     * @param out    the buffer, with at least {@link #maxBytes(DominoSet)} bytes remaining
+     */
+    public static void save(GameEngine engine, ByteBuffer out) {
+        out.putInt(MAGIC).put((byte) VERSION)
+                .put((byte) (engine.getDominoSet().getDominoRange() - 1))
+                .put((byte) engine.getRules().getRuleSet().ordinal());
+        engine.writeSnapshot(out);
+    }
+
+    /**
+     * Takes a snapshot of a game.
+     *
+     * @param engine the game
+     * @return the snapshot, exactly as long as needed
+     */
+    public static byte[] save(GameEngine engine) {
+        ByteBuffer out = ByteBuffer.allocate(maxBytes(engine.getDominoSet()));
+        save(engine, out);
+        byte[] snapshot = new byte[out.position()];
+        out.flip().get(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Restores a game from a snapshot into an engine with the same domino set and rules.
+     * If the snapshot turns out to be corrupt the engine is left in no particular state.
+     *
+     * @param engine the engine, which becomes the saved game
+     * @param in     the buffer, positioned at the start of the snapshot
+     * @throws IllegalArgumentException if the buffer does not hold a valid snapshot of a game
+     *                                  with the engine's set and rules
+     */
+    public static void restore(GameEngine engine, ByteBuffer in) {
+        try {
+            int maxDots = readHeader(in);
+            int rules = in.get();
+            if (maxDots != engine.getDominoSet().getDominoRange() - 1
+                    || rules != engine.getRules().getRuleSet().ordinal()) {
+                throw new IllegalArgumentException("Snapshot is of a game with another set or rules.");
+            }
+            engine.readSnapshot(in);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated game snapshot.", e);
+        }
+    }
+
+    /**
+     * Restores a game from a snapshot taken by {@link #save(GameEngine)}.
+     *
+     * @param engine   the engine, which becomes the saved game
+     * @param snapshot the snapshot
+     * @throws IllegalArgumentException if the snapshot is not valid for the engine
+     */
+    public static void restore(GameEngine engine, byte[] snapshot) {
+        restore(engine, ByteBuffer.wrap(snapshot));
+    }
+
+    /**
+     * Creates a new engine holding the game of a snapshot, with the set and rules it names.
+     *
+     * @param in the buffer, positioned at the start of the snapshot
+     * @return the restored game
+     * @throws IllegalArgumentException if the buffer does not hold a valid snapshot
+     */
+    public static GameEngine load(ByteBuffer in) {
+        int start = in.position();
+        int maxDots;
+        int rules;
+        try {
+            maxDots = readHeader(in);
+            rules = in.get();
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated game snapshot.", e);
+        }
+        if (maxDots > GameEngine.MAX_SET_DOTS || rules < 0 || rules >= RULE_SETS.length) {
+            throw new IllegalArgumentException("Corrupt game snapshot.");
+        }
+        GameEngine engine = new GameEngine(maxDots, RULE_SETS[rules]);
+        restore(engine, in.position(start));
+        return engine;
+    }
+
+    /**
+     * Saves a game to a file, replacing it atomically through a temporary file next to it.
+     *
+     * @param engine the game
+     * @param file   the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(GameEngine engine, Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, save(engine));
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a game saved by {@link #write(GameEngine, Path)}.
+     *
+     * @param file the file
+     * @return the restored game
+     * @throws IOException if the file cannot be read or does not hold a valid snapshot
+     */
+    public static GameEngine read(Path file) throws IOException {
+        try {
+            return load(ByteBuffer.wrap(Files.readAllBytes(file)));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Not a valid saved game: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads and checks the magic and version of a snapshot.
+     *
+     * @param in the buffer, positioned at the start of the snapshot
+     * @return the maximum number of dots of the saved game's set
+     * @throws IllegalArgumentException if the buffer does not start with a snapshot header
+     */
+    private static int readHeader(ByteBuffer in) {
+        if (in.getInt() != MAGIC || in.get() != VERSION) {
+            throw new IllegalArgumentException("Not a game snapshot.");
+        }
+        return Byte.toUnsignedInt(in.get());
+    }
+}
@@ -0,0 +1,33 @@
+package domino;
+
+/**
+ * A greedy computer player that dumps the tile with the most dots first, so that as few dots
+ * as possible are left in its tray if the game ends blocked.
+ *
+ * @author Krishna Sedhain
+ */
+public class HeaviestTileStrategy implements Strategy {
+
+    /**
+     * Picks the move playing the heaviest tile; ties go to the earlier move.
+     *
+     * @param engine the game
+     * @param moves  the legal moves
+     * @param count  the number of legal moves
+     * @return the index of the chosen move
+     */
+    @Override
+    public int chooseMove(GameEngine engine, int[] moves, int count) {
+        DominoSet dominoSet = engine.getDominoSet();
+        int best = 0;
+        int bestPips = -1;
+        for (int i = 0; i < count; i++) {
+            int pips = dominoSet.pips(Moves.tile(moves[i]));
+            if (pips > bestPips) {
+                best = i;
+                bestPips = pips;
+            }
+        }
+        return best;
+    }
+}
@@ -1,20 +1,61 @@
 package domino;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * The Main class manages the command-line version of the Domino game.
- * It handles game initialization, player turns, domino distribution,
- * and determining the winner
+ * It is a console front-end over {@link GameEngine}: it reads the human's moves,
+ * prints the board and announces the winner, while the engine applies the rules.
  *
  * <p>The game supports a variable domino set size based on the maximum number
- * of dots specified (default is 6). It supports both human and computer players.</p>
+ * of dots specified (default is 6) and any {@link RuleSet} (default is the zero-wildcard
+ * game). It supports both human and computer players.</p>
+ *
+ * <p>Output goes through a {@link ConsoleRenderer}, which is written out once per turn and
+ * before every prompt. The {@code -q} option renders nothing but the result, for scripted
+ * or piped games.</p>
+ *
+ * <p>The game is saved as a {@link GameSnapshots snapshot} before every turn, so quitting
+ * does not lose it: the next start resumes it, unless its arguments ask for another game.
+ * The human can also undo their last move, which restores the snapshot taken at the start
+ * of their previous turn.</p>
  *
  * @author Krishna Sedhain
  */
 public class Main {
 
+    /**
+     * Command line option that records the game, followed by the file name.
+     */
+    private static final String RECORD_OPTION = "--record=";
+
+    /**
+     * Command line option that sets the save file, followed by the file name.
+     */
+    private static final String SAVE_OPTION = "--save=";
+
+    /**
+     * Command line option that discards the saved game and deals a new one.
+     */
+    private static final String NEW_OPTION = "--new";
+
+    /**
+     * The file the game is saved to unless another one is given.
+     */
+    private static final Path DEFAULT_SAVE_FILE = Path.of("domino.sav");
+
+    /**
+     * The headless engine holding the board, both players and the rules.
+     */
+    private final GameEngine engine;
+
     /**
      * The game board containing the domino set and the played dominoes.
      */
@@ -23,17 +64,22 @@ public class Main {
     /**
      * The human player.
      */
-    private final Player human = new Player(Players.Human);
+    private final Player human;
 
     /**
      * The computer player.
      */
-    private final Player computer = new Player(Players.Computer);
+    private final Player computer;
 
     /**
-     * Tracks whose turn it is.
+     * The computer player's policy.
      */
-    private Players currentPlayer = Players.Human;
+    private final Strategy computerStrategy = new EndgameSolver(new ExpectimaxStrategy());
+
+    /**
+     * Renders the game to the console.
+     */
+    private final ConsoleRenderer out;
 
     /**
      * Scanner for reading human input from the console.
@@ -41,9 +87,24 @@ public class Main {
     private final Scanner scanner = new Scanner(System.in);
 
     /**
-     * Flag to indicate if the game has ended.
+     * Flag to indicate if the human quit the game.
+     */
+    private boolean quit = false;
+
+    /**
+     * {@code true} if the engine holds a saved game that is already dealt.
+     */
+    private final boolean resumed;
+
+    /**
+     * The file the game is saved to before every turn, or null to not save it.
      */
-    private boolean gameOver = false;
+    private Path saveFile;
+
+    /**
+     * Snapshots taken at the start of each of the human's turns, the latest last.
+     */
+    private final List<byte[]> history = new ArrayList<>();
 
     /**
      * Constructs a new Main game instance with a specified maximum number of dots.
@@ -52,8 +113,59 @@ public class Main {
      * @param maxDots the maximum number of dots for any side of a domino
      */
     public Main(int maxDots) {
-        // Pass the maxDots parameter to the Board so that it builds the domino set accordingly.
-        this.board = new Board(maxDots);
+        this(new GameEngine(maxDots), false, false);
+    }
+
+    /**
+     * Constructs a new Main game instance whose deal is shuffled from the given seed, so a
+     * game can be replayed exactly, for example to reproduce a bug.
+     *
+     * @param maxDots the maximum number of dots for any side of a domino
+     * @param seed    the game seed
+     */
+    public Main(int maxDots, long seed) {
+        this(new GameEngine(maxDots, seed), false, false);
+    }
+
+    /**
+     * Constructs a new Main game instance with the given rules whose deal is shuffled from
+     * the given seed.
+     *
+     * @param maxDots the maximum number of dots for any side of a domino
+     * @param seed    the game seed
+     * @param ruleSet the rules of the game
+     */
+    public Main(int maxDots, long seed, RuleSet ruleSet) {
+        this(maxDots, seed, ruleSet, false);
+    }
+
+    /**
+     * Constructs a new Main game instance with the given rules whose deal is shuffled from
+     * the given seed, optionally rendering nothing but the result.
+     *
+     * @param maxDots the maximum number of dots for any side of a domino
+     * @param seed    the game seed
+     * @param ruleSet the rules of the game
+     * @param quiet   {@code true} to print only the result of the game
+     */
+    public Main(int maxDots, long seed, RuleSet ruleSet, boolean quiet) {
+        this(new GameEngine(maxDots, seed, ruleSet), quiet, false);
+    }
+
+    /**
+     * Constructs a new Main game instance over the given engine.
+     *
+     * @param engine  the engine running the game
+     * @param quiet   {@code true} to print only the result of the game
+     * @param resumed {@code true} if the engine holds a saved game, which is not dealt again
+     */
+    private Main(GameEngine engine, boolean quiet, boolean resumed) {
+        this.engine = engine;
+        this.resumed = resumed;
+        this.out = new ConsoleRenderer(System.out, quiet);
+        this.board = engine.getBoard();
+        this.human = engine.getPlayer(Players.Human);
+        this.computer = engine.getPlayer(Players.Computer);
     }
 
     /**
@@ -67,22 +179,50 @@ public class Main {
      * The main entry point of the application.
      *
      * <p>This method processes an optional command-line argument to set the domino set size
-     * (allowed values are 3 to 9). It then creates an instance of the game and starts it.</p>
+     * (allowed values are {@link GameEngine#MIN_SET_DOTS} to {@link GameEngine#MAX_SET_DOTS}, so
+     * tournament sets up to double-18 can be played). An optional second argument gives the
+     * game seed, which replays the exact same deal, and an optional third argument the rule
+     * set. The option {@code -q} (or {@code --quiet}), anywhere on the command line, prints
+     * only the seed, the rules and the result, and {@code --record=<file>} appends the game to
+     * a game record file (see {@link GameRecords}). The game is saved to {@code domino.sav}, or
+     * the file given with {@code --save=<file>}; quiet games are only saved when a file is
+     * given. If that file holds a game when the console starts, the saved game is resumed
+     * instead of dealing a new one, and it is not recorded. A set size, seed or rule set given
+     * on the command line must match the saved game, otherwise the console refuses to start;
+     * {@code --new} discards the saved game instead. It then creates an instance of the game
+     * and starts it.</p>
      *
-     * @param args command-line arguments; the first argument can be the maximum number of dots
+     * @param arguments command-line arguments; the first argument can be the maximum number of
+     *                  dots, the second the game seed and the third the rule set
      */
-    public static void main(String[] args) {
+    public static void main(String[] arguments) {
         int maxDots = 6; // Default value
+        List<String> positional = new ArrayList<>(Arrays.asList(arguments));
+        boolean quiet = positional.remove("-q") | positional.remove("--quiet");
+        boolean newGame = positional.remove(NEW_OPTION);
+        Path recordFile = null;
+        // Scripted quiet games only save when asked to, so a run that stops early does not
+        // resume into the next one.
+        Path saveFile = quiet ? null : DEFAULT_SAVE_FILE;
+        for (int i = positional.size() - 1; i >= 0; i--) {
+            if (positional.get(i).startsWith(RECORD_OPTION)) {
+                recordFile = Path.of(positional.remove(i).substring(RECORD_OPTION.length()));
+            } else if (positional.get(i).startsWith(SAVE_OPTION)) {
+                saveFile = Path.of(positional.remove(i).substring(SAVE_OPTION.length()));
+            }
+        }
+        String[] args = positional.toArray(new String[0]);
 
         // Process command-line argument if provided.
         if (args.length > 0) {
             try {
                 int input = Integer.parseInt(args[0]);
-                // Accept numbers 3 to 9. (6 is included as it is the default)
-                if (input >= 3 && input <= 9) {
+                // Accept numbers 3 to 18. (6 is included as it is the default)
+                if (input >= GameEngine.MIN_SET_DOTS && input <= GameEngine.MAX_SET_DOTS) {
                     maxDots = input;
                 } else {
-                    System.out.println("Invalid domino set size. Please provide a number between 3 and 9.");
+                    System.out.println("Invalid domino set size. Please provide a number between "
+                            + GameEngine.MIN_SET_DOTS + " and " + GameEngine.MAX_SET_DOTS + ".");
                     System.exit(1);
                 }
             } catch (NumberFormatException e) {
@@ -90,8 +230,62 @@ public class Main {
                 System.exit(1);
             }
         }
-        Main gameManager = new Main(maxDots);
-        gameManager.startGame();
+        long seed = ThreadLocalRandom.current().nextLong();
+        if (args.length > 1) {
+            try {
+                seed = Long.parseLong(args[1]);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid seed. Please provide an integer value for the game seed.");
+                System.exit(1);
+            }
+        }
+        RuleSet ruleSet = RuleSet.ZeroWildcard;
+        if (args.length > 2) {
+            try {
+                ruleSet = RuleSet.valueOf(args[2]);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Invalid rule set. Please provide one of " + Arrays.toString(RuleSet.values()) + ".");
+                System.exit(1);
+            }
+        }
+        Main gameManager;
+        if (saveFile != null && !newGame && Files.exists(saveFile)) {
+            GameEngine saved = null;
+            try {
+                saved = GameSnapshots.read(saveFile);
+            } catch (IOException e) {
+                System.out.println("Could not resume the game saved in " + saveFile + " (" + e.getMessage()
+                        + ") Add " + NEW_OPTION + " to discard it.");
+                System.exit(1);
+            }
+            int savedDots = saved.getDominoSet().getDominoRange() - 1;
+            RuleSet savedRules = saved.getRules().getRuleSet();
+            if ((args.length > 0 && maxDots != savedDots) || (args.length > 1 && seed != saved.getSeed())
+                    || (args.length > 2 && ruleSet != savedRules)) {
+                System.out.println("The game saved in " + saveFile + " (set " + savedDots + ", seed "
+                        + saved.getSeed() + ", " + savedRules + ") does not match the arguments. Run without them"
+                        + " to resume it, or add " + NEW_OPTION + " to discard it.");
+                System.exit(1);
+            }
+            gameManager = new Main(saved, quiet, true);
+            System.out.println("Resuming the game saved in " + saveFile);
+        } else {
+            gameManager = new Main(maxDots, seed, ruleSet, quiet);
+        }
+        gameManager.setSaveFile(saveFile);
+        System.out.println("Game seed: " + gameManager.getEngine().getSeed());
+        System.out.println("Rules: " + gameManager.getEngine().getRules().getRuleSet());
+        if (recordFile == null) {
+            gameManager.startGame();
+            return;
+        }
+        try (GameRecordWriter recorder = GameRecordWriter.append(recordFile)) {
+            gameManager.getEngine().setRecorder(recorder);
+            gameManager.startGame();
+        } catch (IOException e) {
+            System.out.println("Could not record the game: " + e.getMessage());
+            System.exit(1);
+        }
     }
 
     /**
@@ -99,22 +293,69 @@ public class Main {
      * until the game is over.
      */
     public void startGame() {
-        distributeDomino(human, computer, board);
-        // End the game when the boneyard is empty or when both players have no valid move.
-        while (!gameOver) {
-            if (currentPlayer == Players.Human) {
+        if (!resumed) {
+            engine.deal();
+        }
+        // End the game when a tray is empty, both players are blocked or the human quits.
+        while (!engine.isTerminal() && !quit) {
+            save();
+            if (engine.getCurrentPlayer() == Players.Human) {
                 playDiceForHuman();
-                checkGameEnd();
             } else {
                 playDiceForComputer();
-                checkGameEnd();
             }
         }
+        if (engine.isTerminal()) {
+            announceWinner();
+            deleteSave();
+        } else if (saveFile != null) {
+            save();
+            out.summary("Game saved to " + saveFile);
+        }
+        out.flush();
+    }
+
+    /**
+     * Sets the file the game is saved to before every turn. A finished game is deleted from it.
+     *
+     * @param saveFile the file, or null to not save the game
+     */
+    public void setSaveFile(Path saveFile) {
+        this.saveFile = saveFile;
+    }
+
+    /**
+     * Saves the game to the save file, if there is one. If saving fails the game carries on
+     * without saving.
+     */
+    private void save() {
+        if (saveFile == null) {
+            return;
+        }
+        try {
+            GameSnapshots.write(engine, saveFile);
+        } catch (IOException e) {
+            out.summary("Could not save the game: " + e.getMessage());
+            saveFile = null;
+        }
     }
 
     /**
-     * Checks if the game has ended by verifying whether either player can make a valid play.
-     * If both players cannot play, the game ends. The winner is determined by:
+     * Deletes the save file of a finished game, if there is one.
+     */
+    private void deleteSave() {
+        if (saveFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(saveFile);
+        } catch (IOException e) {
+            out.summary("Could not delete the saved game: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints the winner of the finished game. The winner is determined by:
      * <ul>
      *     <li>If one player's tray is empty, that player wins.</li>
      *     <li>Otherwise, the total remaining dots in each tray are summed, and the player
@@ -122,361 +363,216 @@ public class Main {
      *     <li>If the sums are equal, the game is declared a tie.</li>
      * </ul>
      */
-    private void checkGameEnd() {
-        boolean validPlayForHuman = checkIfValidPlayExists(human.getTray(), board);
-        boolean validPlayForComputer = checkIfValidPlayExists(computer.getTray(), board);
-        if (!validPlayForHuman && !validPlayForComputer) {
-            // if the player's tray is empty then they are the winner
-            String winnerSelection = " player";
-            if (human.getTray().isEmpty()) {
-                winnerSelection = "human";
-                System.out.println("Ending the game");
-                System.out.println("The winner is " + winnerSelection);
-                gameOver = true;
-            } else if (computer.getTray().isEmpty()) {
-                winnerSelection = "computer";
-                System.out.println("Ending the game");
-                System.out.println("The winner is " + winnerSelection);
-                gameOver = true;
-            } else {
-                // Otherwise count the scores and show who the winner is.
-                int remainingHumanTrayCount = human.getTray().stream()
-                        .mapToInt(d -> d.getLeftNumDots() + d.getRightNumDots()).sum();
-                int remainingComputerTrayCount = computer.getTray().stream()
-                        .mapToInt(d -> d.getLeftNumDots() + d.getRightNumDots()).sum();
-
-                if (remainingComputerTrayCount > remainingHumanTrayCount) {
-                    winnerSelection = "human";
-                } else if (remainingComputerTrayCount < remainingHumanTrayCount) {
-                    winnerSelection = "computer";
-                } else {
-                    winnerSelection = "no-one. It's a tie!";
-                }
-                System.out.println("Ending the game");
-                System.out.println("The winner is " + winnerSelection);
-                gameOver = true;
-            }
+    private void announceWinner() {
+        String winnerSelection;
+        if (engine.getWinner() == Players.Human) {
+            winnerSelection = "human";
+        } else if (engine.getWinner() == Players.Computer) {
+            winnerSelection = "computer";
+        } else {
+            winnerSelection = "no-one. It's a tie!";
         }
+        out.summary("Ending the game");
+        out.summary("The winner is " + winnerSelection);
+        out.summary(scores());
     }
 
     /**
-     * Checks if there is at least one valid domino that can be played from the provided tray.
+     * Describes the points both players have scored.
      *
-     * @param tray  the list of dominoes in a player's tray
-     * @param board the game board containing the played dominoes
-     * @return {@code true} if a valid play exists; {@code false} otherwise
+     * @return the points line
      */
-    public boolean checkIfValidPlayExists(ArrayList<Domino> tray, Board board) {
-        if (tray.isEmpty()) {
-            return false; // Can't play if the tray is empty.
-        }
-
-        if (board.getPlayedDomino().isEmpty()) {
-            return true; // Any domino can be played if the board is empty.
-        }
-
-        int leftEnd = board.getPlayedDomino().getFirst().getLeftNumDots();
-        int rightEnd = board.getPlayedDomino().getLast().getRightNumDots();
-
-        for (Domino domino : tray) {
-            if (domino.getLeftNumDots() == 0 || domino.getRightNumDots() == 0 ||
-                    domino.getLeftNumDots() == leftEnd || domino.getRightNumDots() == leftEnd ||
-                    domino.getLeftNumDots() == rightEnd || domino.getRightNumDots() == rightEnd) {
-                return true;
-            }
-        }
-
-        return false;
+    private String scores() {
+        return "Points: human " + engine.getScore(Players.Human)
+                + ", computer " + engine.getScore(Players.Computer);
     }
 
     /**
-     * Prints the current playing board to the console in two lines.
+     * Renders the current playing board in two lines.
      * The dominoes are arranged alternately between the two lines.
      */
     private void printPlayingBoard() {
-        String firstLine = "";
-        String secondLine = "";
-        int lineCounter = 0;
-        for (Domino dice : board.getPlayedDomino()) {
-            if (lineCounter == 0) {
-                firstLine += "[" + dice.getLeftNumDots() + " " + dice.getRightNumDots() + "]";
-                lineCounter++;
-            } else if (lineCounter == 1) {
-                secondLine += "[" + dice.getLeftNumDots() + " " + dice.getRightNumDots() + "]";
-                lineCounter--;
-            }
-        }
-        System.out.println(firstLine);
-        System.out.println("  " + secondLine);
+        out.board(board);
     }
 
     /**
-     * Executes the computer player's turn.
-     * The method displays current game information, makes a play if possible,
-     * or draws from the boneyard if no valid play is available.
+     * Renders the computer's tray size and the boneyard size.
      */
-    private void playDiceForComputer() {
-        System.out.println("Computer has " + computer.getTray().size() + " dominos");
-        int boneyardSize = board.getAvailableDomino() == null ? 0 : board.getAvailableDomino().size();
-        System.out.println("Boneyard contains " + boneyardSize + " dominos");
-        printPlayingBoard();
-        printHumanTray();
-        System.out.println("Computer's Turn");
-        checkIfValidPlayForComputer();
-        System.out.println("Computer has " + computer.getTray().size() + " dominos");
-        System.out.println("Boneyard contains " + boneyardSize + " dominos");
-        printPlayingBoard();
+    private void printCounts() {
+        out.text("Computer has ").number(computer.getTraySize()).line(" dominos");
+        out.text("Boneyard contains ").number(board.getBoneyardSize()).line(" dominos");
     }
 
     /**
-     * Checks for a valid play in the computer's tray and makes the move.
-     * If no valid move is available, the computer draws from the boneyard until a playable domino is found.
+     * Renders a prompt and writes out the turn so far, before waiting for the human's input.
+     *
+     * @param prompt the prompt
      */
-    public void checkIfValidPlayForComputer() {
-        ArrayList<Domino> computerTray = computer.getTray();
-        int leftEnd = board.getPlayedDomino().getFirst().getLeftNumDots();
-        int rightEnd = board.getPlayedDomino().getLast().getRightNumDots();
-
-        for (int i = 0; i < computerTray.size(); i++) {
-            Domino computerDice = computerTray.get(i);
-            boolean canPlayLeft = computerDice.getLeftNumDots() == 0 || computerDice.getRightNumDots() == 0 ||
-                    computerDice.getLeftNumDots() == leftEnd || computerDice.getRightNumDots() == leftEnd;
-            boolean canPlayRight = computerDice.getLeftNumDots() == 0 || computerDice.getRightNumDots() == 0 ||
-                    computerDice.getLeftNumDots() == rightEnd || computerDice.getRightNumDots() == rightEnd;
-
-            if (canPlayLeft) {
-                if (computerDice.getRightNumDots() != leftEnd && computerDice.getRightNumDots() != 0) {
-                    computerDice.rotateDomino();
-                }
-                board.placeOnLeft(computerDice);
-                computerTray.remove(i);
-                currentPlayer = Players.Human;
-                System.out.println("Computer plays [" + computerDice.getLeftNumDots() + " " +
-                        computerDice.getRightNumDots() + "] at left");
-                return;
-            } else if (canPlayRight) {
-                if (computerDice.getLeftNumDots() != rightEnd && computerDice.getLeftNumDots() != 0) {
-                    computerDice.rotateDomino();
-                }
-                board.placeOnRight(computerDice);
-                computerTray.remove(i);
-                currentPlayer = Players.Human;
-                System.out.println("Computer plays [" + computerDice.getLeftNumDots() + " " +
-                        computerDice.getRightNumDots() + "] at right");
-                return;
-            }
-        }
-        while (board.getAvailableDomino() != null) {
-            System.out.println("Computer draws from boneyard");
-            Domino diceFromBoneyard = board.drawFromBoneyard();
-            computerTray.add(diceFromBoneyard);
-            if (doesPickedDiceMatchEitherEnd(diceFromBoneyard, board)) {
-                break;
-            }
-        }
-        currentPlayer = Players.Human;
+    private void prompt(String prompt) {
+        out.line(prompt);
+        out.flush();
     }
 
     /**
-     * Determines if the domino drawn from the boneyard matches either end of the played domino chain.
-     * If a match is found, the domino is played on the appropriate side.
-     *
-     * @param diceFromBoneyard the domino drawn from the boneyard
-     * @param board            the game board with played dominoes
-     * @return {@code true} if the drawn domino matches and is played; {@code false} otherwise
-     */
-    public boolean doesPickedDiceMatchEitherEnd(Domino diceFromBoneyard, Board board) {
-        if (board.getPlayedDomino().size() > 0) {
-            int leftPlayedDice = board.getPlayedDomino().getFirst().getLeftNumDots();
-            int rightPlayedDice = board.getPlayedDomino().getLast().getRightNumDots();
-            if (diceFromBoneyard.getLeftNumDots() == leftPlayedDice) {
-                diceFromBoneyard.rotateDomino();
-                board.placeOnLeft(diceFromBoneyard);
-                return true;
-            } else if (diceFromBoneyard.getRightNumDots() == rightPlayedDice) {
-                diceFromBoneyard.rotateDomino();
-                board.placeOnRight(diceFromBoneyard);
-                return true;
-            } else if (diceFromBoneyard.getLeftNumDots() == rightPlayedDice) {
-                board.placeOnRight(diceFromBoneyard);
-                return true;
-            } else if (diceFromBoneyard.getRightNumDots() == leftPlayedDice) {
-                board.placeOnLeft(diceFromBoneyard);
-                return true;
-            }
+     * Executes the computer player's turn.
+     * The method displays current game information, lets the engine make the computer's
+     * move and reports what the computer did. The whole turn is written out at once.
+     */
+    private void playDiceForComputer() {
+        printCounts();
+        printPlayingBoard();
+        printHumanTray();
+        out.line("Computer's Turn");
+        boolean played = engine.step(computerStrategy);
+        for (int i = 0; i < engine.getLastDrawCount(); i++) {
+            out.line("Computer draws from boneyard");
+        }
+        if (played) {
+            out.text("Computer plays ").domino(engine.getDominoSet(), engine.getLastPlacement())
+                    .text(" at ").line(engine.getLastSide() == Side.Left ? "left" : "right");
+        } else {
+            out.line("Computer cannot play and passes");
         }
-        return false;
+        printCounts();
+        printPlayingBoard();
+        if (engine.getRules().scoresPlays() && !out.isQuiet()) {
+            out.line(scores());
+        }
+        out.flush();
     }
 
     /**
      * Executes the human player's turn by allowing the player to either play a domino,
-     * draw from the boneyard, or quit the game.
+     * draw from the boneyard, undo their last move or quit the game.
      * The method continues to prompt the player until a valid move is made or the game is quit.
+     * If the human has no valid play and cannot draw, the turn is passed.
      */
     private void playDiceForHuman() {
+        history.add(GameSnapshots.save(engine));
         boolean selectedDice = false;
         while (!selectedDice) {
             printHumanTray();
-            boolean validPlayExists = checkIfValidPlayExists(human.getTray(), board);
+            boolean validPlayExists = engine.hasValidPlay(human);
+            if (engine.mustPass()) {
+                out.line(board.getBoneyardSize() == 0
+                        ? "No playable domino and the boneyard is empty. Passing."
+                        : "No playable domino and these rules do not allow drawing. Passing.");
+                engine.pass();
+                return;
+            }
 
-            System.out.println("Human’s turn\n" +
+            prompt("Human’s turn\n" +
                     "[p] Play Domino\n" +
                     "[d] Draw from boneyard\n" +
+                    "[u] Undo last move\n" +
                     "[q] Quit");
 
-            String humanOptions = scanner.next();
+            String humanOptions = nextInput();
 
             switch (humanOptions) {
                 case "p" -> {
-                    System.out.println("Which domino?");
+                    prompt("Which domino?");
                     if (!scanner.hasNextInt()) {
-                        System.out.println("Please enter a valid number");
-                        return;
+                        out.line("Please enter a valid number");
+                        nextInput();
+                        continue;
                     }
                     int dominoIndex = scanner.nextInt();
                     String leftRight;
                     String rotate;
-                    if (human.getTray().size() <= dominoIndex || dominoIndex < 0) {
-                        System.out.println("Invalid Domino Index");
+                    if (human.getTraySize() <= dominoIndex || dominoIndex < 0) {
+                        out.line("Invalid Domino Index");
                         continue;
                     }
-                    System.out.println("Left or Right? (l/r)");
-                    leftRight = scanner.next();
+                    prompt("Left or Right? (l/r)");
+                    leftRight = nextInput();
                     if (leftRight.equals("l") || leftRight.equals("r")) {
-                        System.out.println("Rotate first? (y/n)");
-                        rotate = scanner.next();
+                        prompt("Rotate first? (y/n)");
+                        rotate = nextInput();
                         if (!(rotate.equals("y") || rotate.equals("n"))) {
-                            System.out.println("Wrong Input!");
+                            out.line("Wrong Input!");
                             continue;
                         }
-                        boolean isValid = checkIfValidPlayForHuman(dominoIndex, leftRight, rotate);
-                        if (isValid) {
+                        Side side = leftRight.equals("l") ? Side.Left : Side.Right;
+                        if (engine.applyMove(dominoIndex, side, rotate.equals("y"))) {
                             selectedDice = true;
-                            if (leftRight.equals("l")) {
-                                System.out.println("Playing [" + board.getPlayedDomino().getFirst().getLeftNumDots() + " " +
-                                        board.getPlayedDomino().getFirst().getRightNumDots() + "] at left");
-                            } else {
-                                System.out.println("Playing [" + board.getPlayedDomino().getFirst().getLeftNumDots() + " " +
-                                        board.getPlayedDomino().getFirst().getRightNumDots() + "] at right");
-                            }
-                            currentPlayer = Players.Computer;
+                            out.text("Playing ").domino(engine.getDominoSet(), engine.getLastPlacement())
+                                    .text(" at ").line(side == Side.Left ? "left" : "right");
                         } else {
-                            System.out.println("Invalid play. Please check again!");
+                            out.line("Invalid play. Please check again!");
                         }
                     }
                 }
                 case "d" -> {
                     if (!validPlayExists) {
-                        Domino diceFromBoneyard = board.drawFromBoneyard();
-                        if (diceFromBoneyard != null) {
-                            human.getTray().add(diceFromBoneyard);
-                            if (checkIfValidPlayExists(human.getTray(), board)) {
-                                System.out.println("You drew a playable domino: [" + diceFromBoneyard.getLeftNumDots() +
-                                        "," + diceFromBoneyard.getRightNumDots() + "]");
-                                System.out.println("You can now play this domino.");
+                        int tile = engine.draw();
+                        if (tile >= 0) {
+                            Domino diceFromBoneyard = engine.getDominoSet().toDomino(DominoSet.placement(tile, false));
+                            if (engine.hasValidPlay(human)) {
+                                out.text("You drew a playable domino: [").number(diceFromBoneyard.getLeftNumDots())
+                                        .text(",").number(diceFromBoneyard.getRightNumDots()).line("]");
+                                out.line("You can now play this domino.");
                             } else {
-                                System.out.println("The drawn domino doesn't match and will be added to your tray.");
+                                out.line("The drawn domino doesn't match and will be added to your tray.");
                             }
                         } else {
-                            System.out.println("The boneyard is empty, so no domino can be drawn..");
+                            out.line("The boneyard is empty, so no domino can be drawn..");
                         }
                     } else {
-                        System.out.println("You are not allowed to draw since you have a playable move available in your tray..");
+                        out.line("You are not allowed to draw since you have a playable move available in your tray..");
                     }
                 }
+                case "u" -> {
+                    if (undo()) {
+                        return;
+                    }
+                    out.line("Nothing to undo.");
+                }
                 case "q" -> {
-                    System.out.println("Quitting Game");
+                    out.line("Quitting Game");
                     selectedDice = true;
-                    gameOver = true;
+                    quit = true;
                 }
-                default -> System.out.println("Invalid option. Please try again.");
+                default -> out.line("Invalid option. Please try again.");
             }
         }
     }
 
     /**
-     * Prints the human player's tray (the dominoes they hold) to the console.
+     * Reads the human's next input. The end of the input quits the game, so a script that
+     * runs out of moves ends as if it had typed q.
+     *
+     * @return the next input, or "q" once the input has ended
      */
-    private void printHumanTray() {
-        System.out.print("Tray: [");
-        int numDice = human.getTray().size();
-        for (int i = 0; i < numDice; i++) {
-            Domino dice = human.getTray().get(i);
-            System.out.print("[" + dice.getLeftNumDots() + " " + dice.getRightNumDots() + "]");
-            if (i != numDice - 1) {
-                System.out.print(", ");
-            }
-        }
-        System.out.println("]");
+    private String nextInput() {
+        return scanner.hasNext() ? scanner.next() : "q";
     }
 
     /**
-     * Checks if the human player's selected domino can be played on the chosen side of the board.
-     * If a rotation is requested, the domino is rotated before the move is validated.
+     * Takes back the human's last move and the computer's reply by restoring the snapshot of
+     * the human's previous turn. An undone game can no longer be replayed from its record, so
+     * recording stops.
      *
-     * @param index     the index of the domino in the human player's tray
-     * @param leftRight a String indicating the chosen side ("l" for left, "r" for right)
-     * @param rotate    a String indicating if rotation is requested ("y" for yes, "n" for no)
-     * @return {@code true} if the move is valid and executed; {@code false} otherwise
-     */
-    private boolean checkIfValidPlayForHuman(int index, String leftRight, String rotate) {
-        if (board.getPlayedDomino().isEmpty()) {
-            board.getPlayedDomino().add(human.getDominoFromTray(index));
-            human.removedDominoFromPlayerTray(index);
-            return true;
-        }
-
-        Domino dominoToPlay = human.getDominoFromTray(index);
-        int leftEnd = board.getPlayedDomino().getFirst().getLeftNumDots();
-        int rightEnd = board.getPlayedDomino().getLast().getRightNumDots();
-
-        boolean canPlayLeft = dominoToPlay.getLeftNumDots() == 0 || dominoToPlay.getRightNumDots() == 0 ||
-                dominoToPlay.getLeftNumDots() == leftEnd || dominoToPlay.getRightNumDots() == leftEnd;
-        boolean canPlayRight = dominoToPlay.getLeftNumDots() == 0 || dominoToPlay.getRightNumDots() == 0 ||
-                dominoToPlay.getLeftNumDots() == rightEnd || dominoToPlay.getRightNumDots() == rightEnd;
-
-        if (rotate.equals("y")) {
-            dominoToPlay.rotateDomino();
-        }
-
-        if (leftRight.equals("l") && canPlayLeft) {
-            board.getPlayedDomino().addFirst(dominoToPlay);
-            human.removedDominoFromPlayerTray(index);
-            return true;
-        } else if (leftRight.equals("r") && canPlayRight) {
-            board.getPlayedDomino().addLast(dominoToPlay);
-            human.removedDominoFromPlayerTray(index);
-            return true;
-        }
-
-        if (rotate.equals("y")) {
-            dominoToPlay.rotateDomino();
+     * @return {@code true} if a move was undone; {@code false} on the human's first turn
+     */
+    private boolean undo() {
+        if (history.size() < 2) {
+            return false;
         }
-        return false;
+        history.remove(history.size() - 1);
+        GameSnapshots.restore(engine, history.remove(history.size() - 1));
+        engine.setRecorder(null);
+        out.line("Undoing your last move");
+        printCounts();
+        printPlayingBoard();
+        return true;
     }
 
     /**
-     * Distributes dominoes to both the human and computer players.
-     * Each player receives the number of dominoes specified by {@code startingDomino}.
-     *
-     * @param human    the human player
-     * @param computer the computer player
-     * @param board    the game board from which dominoes are drawn
-     */
-    public void distributeDomino(Player human, Player computer, Board board) {
-        for (Players player : Players.values()) {
-            int startingDomino = 7;
-            for (int i = 0; i < startingDomino; i++) {
-                Domino dice = board.drawFromBoneyard();
-                if (dice != null) {
-                    if (player.equals(Players.Human)) {
-                        human.addDominoToPlayerTray(dice);
-                    } else {
-                        computer.addDominoToPlayerTray(dice);
-                    }
-                }
-            }
-        }
+     * Renders the human player's tray (the dominoes they hold).
+     */
+    private void printHumanTray() {
+        out.tray(engine.getDominoSet(), human);
     }
 
     /**
@@ -487,4 +583,13 @@ public class Main {
     public Board getBoard() {
         return board;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the headless engine running this game.
+     *
+     * @return the GameEngine instance used in the game
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+}
@@ -0,0 +1,594 @@
+package domino;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A computer player using information-set Monte Carlo tree search.
+ *
+ * <p>Every iteration copies the game and deals the tiles the player cannot see, the
+ * opponent's tray and the boneyard, again at random ({@link GameEngine#redeal}). It then
+ * walks down one tree shared by all those guesses. At each node only the children whose
+ * moves are legal in the current guess take part. They are compared by UCB1, with the
+ * number of times a child was available in place of the parent's visit count. The first
+ * legal move without a child is added to the tree, and the game is finished with random
+ * moves. Every node on the path is then credited from the point of view of the player who
+ * made its move: two points for a win, one for a tie. Draws and passes are forced, so they
+ * are simply played and do not appear in the tree.</p>
+ *
+ * <p>With several threads the search is either root parallel, where every thread grows its
+ * own tree and the visit counts of the root moves are added up at the end, or tree parallel.
+ * In tree-parallel mode the threads share one tree whose statistics are atomic counters and
+ * whose children are linked in with compare-and-set, so no locks are taken. A thread
+ * walking through a node adds a virtual loss to it until the result is backed up, so the
+ * other threads spread out over the tree.</p>
+ *
+ * <p>The trees, game copies and buffers are allocated once per domino set and rules; only handing the
+ * work to the thread pool allocates. The pool's threads are daemons, and {@link #close()}
+ * stops them.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public class MctsStrategy implements Strategy, AutoCloseable {
+
+    /**
+     * UCB1 exploration constant for rewards between 0 and 1.
+     */
+    private static final double EXPLORATION = 0.7;
+
+    /**
+     * Maximum number of nodes in a tree; the search stops expanding when it is full.
+     */
+    private static final int NODE_CAPACITY = 1 << 18;
+
+    /**
+     * How the search is spread over the threads.
+     */
+    private final Parallelism parallelism;
+
+    /**
+     * Number of search threads.
+     */
+    private final int threads;
+
+    /**
+     * Time budget per move in nanoseconds.
+     */
+    private final long budgetNanos;
+
+    /**
+     * Maximum number of playouts per move, over all threads.
+     */
+    private final int maxPlayouts;
+
+    /**
+     * Seed of the threads' random generators.
+     */
+    private final long seed;
+
+    /**
+     * Runs the workers when there is more than one thread; null otherwise.
+     */
+    private final ExecutorService pool;
+
+    /**
+     * The rules the trees and workers were built for.
+     */
+    private Rules rules;
+
+    /**
+     * The search trees: one per thread in root-parallel mode, one in tree-parallel mode.
+     */
+    private SearchTree[] trees;
+
+    /**
+     * One worker per thread.
+     */
+    private List<Worker> workers;
+
+    /**
+     * Visits of every root move, added up over the trees.
+     */
+    private int[] rootVisits;
+
+    /**
+     * Playouts made for the last move.
+     */
+    private long lastPlayouts;
+
+    /**
+     * Time spent on the last move in nanoseconds.
+     */
+    private long lastNanos;
+
+    /**
+     * Constructs a strategy.
+     *
+     * @param parallelism how the search is spread over the threads
+     * @param threads     number of search threads
+     * @param budgetNanos time budget per move in nanoseconds; {@code Long.MAX_VALUE} makes
+     *                    the playout limit the only limit
+     * @param maxPlayouts maximum number of playouts per move, split evenly over the threads
+     * @param seed        seed of the threads' random generators
+     */
+    public MctsStrategy(Parallelism parallelism, int threads, long budgetNanos, int maxPlayouts, long seed) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one search thread is required.");
+        }
+        if (budgetNanos <= 0 || maxPlayouts < threads) {
+            throw new IllegalArgumentException("Every thread needs time and at least one playout.");
+        }
+        this.parallelism = parallelism;
+        this.threads = threads;
+        this.budgetNanos = budgetNanos;
+        this.maxPlayouts = maxPlayouts;
+        this.seed = seed;
+        this.pool = threads == 1 ? null : Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "mcts-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches the position and picks the root move that was visited most.
+     *
+     * @param engine the game
+     * @param moves  the legal moves
+     * @param count  the number of legal moves
+     * @return the index of the chosen move
+     */
+    @Override
+    public int chooseMove(GameEngine engine, int[] moves, int count) {
+        lastPlayouts = 0;
+        lastNanos = 0;
+        if (count == 1) {
+            return 0;
+        }
+        if (engine.getRules() != rules) {
+            allocate(engine.getRules());
+        }
+        long start = System.nanoTime();
+        long deadline = budgetNanos > Long.MAX_VALUE - start ? Long.MAX_VALUE : start + budgetNanos;
+        for (SearchTree tree : trees) {
+            tree.reset();
+        }
+        for (int i = 0; i < threads; i++) {
+            long from = (long) maxPlayouts * i / threads;
+            long to = (long) maxPlayouts * (i + 1) / threads;
+            workers.get(i).prepare(engine, deadline, (int) (to - from));
+        }
+        if (pool == null) {
+            workers.get(0).call();
+        } else {
+            try {
+                for (var result : pool.invokeAll(workers)) {
+                    result.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search worker failed", e.getCause());
+            }
+        }
+        for (Worker worker : workers) {
+            lastPlayouts += worker.playouts;
+        }
+        lastNanos = System.nanoTime() - start;
+
+        for (SearchTree tree : trees) {
+            for (int child = tree.firstChild.get(0); child >= 0; child = tree.nextSibling[child]) {
+                rootVisits[tree.moveOf[child]] += tree.visits.get(child);
+            }
+        }
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (rootVisits[moves[i]] > rootVisits[moves[best]]) {
+                best = i;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            rootVisits[moves[i]] = 0;
+        }
+        return best;
+    }
+
+    /**
+     * Retrieves the number of playouts made for the last move.
+     *
+     * @return the number of playouts, or 0 if the move was forced
+     */
+    public long getLastPlayouts() {
+        return lastPlayouts;
+    }
+
+    /**
+     * Retrieves the number of playouts per second for the last move.
+     *
+     * @return the playout rate, or 0 if the move was forced
+     */
+    public double getLastPlayoutRate() {
+        return lastNanos == 0 ? 0 : lastPlayouts * 1e9 / lastNanos;
+    }
+
+    /**
+     * Stops the search threads.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds the trees and workers for the domino set of some rules.
+     *
+     * @param gameRules the rules of the game
+     */
+    private void allocate(Rules gameRules) {
+        rules = gameRules;
+        DominoSet set = gameRules.getMoveTable().getDominoSet();
+        trees = new SearchTree[parallelism == Parallelism.Root ? threads : 1];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = new SearchTree();
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            SearchTree tree = trees[parallelism == Parallelism.Root ? i : 0];
+            workers.add(new Worker(tree, gameRules, random.split(), parallelism == Parallelism.Tree && threads > 1));
+        }
+        rootVisits = new int[4 * set.size()];
+    }
+
+    /**
+     * A search tree stored in parallel arrays. Node 0 is the root; every other node is a move
+     * and the player who made it. Statistics are atomic so threads can share the tree, and
+     * the fields of a node are written before it is linked in, so readers always see them.
+     */
+    private static final class SearchTree {
+
+        /**
+         * Move of every node.
+         */
+        private final int[] moveOf = new int[NODE_CAPACITY];
+
+        /**
+         * Ordinal of the player who made the move of every node.
+         */
+        private final int[] moverOf = new int[NODE_CAPACITY];
+
+        /**
+         * Next child of the same parent, or -1.
+         */
+        private final int[] nextSibling = new int[NODE_CAPACITY];
+
+        /**
+         * Most recently added child, or -1.
+         */
+        private final AtomicIntegerArray firstChild = new AtomicIntegerArray(NODE_CAPACITY);
+
+        /**
+         * Number of finished playouts through every node.
+         */
+        private final AtomicIntegerArray visits = new AtomicIntegerArray(NODE_CAPACITY);
+
+        /**
+         * Number of times every node's move was legal when its parent was searched.
+         */
+        private final AtomicIntegerArray available = new AtomicIntegerArray(NODE_CAPACITY);
+
+        /**
+         * Number of playouts currently running through every node.
+         */
+        private final AtomicIntegerArray virtualLoss = new AtomicIntegerArray(NODE_CAPACITY);
+
+        /**
+         * Sum of the rewards of every node, in half points.
+         */
+        private final AtomicLongArray reward = new AtomicLongArray(NODE_CAPACITY);
+
+        /**
+         * Number of nodes in use.
+         */
+        private final AtomicInteger size = new AtomicInteger();
+
+        /**
+         * Empties the tree down to its root.
+         */
+        void reset() {
+            initialize(0, -1, -1);
+            size.set(1);
+        }
+
+        /**
+         * Adds a child to a node unless a child for the same move and player exists.
+         *
+         * @param parent the parent node
+         * @param mover  ordinal of the player making the move
+         * @param move   the move
+         * @return the child, or -1 if the tree is full
+         */
+        int addChild(int parent, int mover, int move) {
+            if (size.get() >= NODE_CAPACITY) {
+                return -1;
+            }
+            int child = size.getAndIncrement();
+            if (child >= NODE_CAPACITY) {
+                return -1;
+            }
+            initialize(child, mover, move);
+            while (true) {
+                int head = firstChild.get(parent);
+                for (int other = head; other >= 0; other = nextSibling[other]) {
+                    if (moveOf[other] == move && moverOf[other] == mover) {
+                        // Another thread added it first; the new node is simply left unused.
+                        return other;
+                    }
+                }
+                nextSibling[child] = head;
+                if (firstChild.compareAndSet(parent, head, child)) {
+                    return child;
+                }
+            }
+        }
+
+        /**
+         * Clears a node.
+         *
+         * @param node  the node
+         * @param mover ordinal of the player making the move
+         * @param move  the move
+         */
+        private void initialize(int node, int mover, int move) {
+            moveOf[node] = move;
+            moverOf[node] = mover;
+            nextSibling[node] = -1;
+            firstChild.set(node, -1);
+            visits.set(node, 0);
+            available.set(node, 0);
+            virtualLoss.set(node, 0);
+            reward.set(node, 0);
+        }
+    }
+
+    /**
+     * One search thread with its own game copy, buffers and random generator.
+     */
+    private static final class Worker implements Callable<Void> {
+
+        /**
+         * The tree this worker grows.
+         */
+        private final SearchTree tree;
+
+        /**
+         * The game copy iterations are played on.
+         */
+        private final GameEngine game;
+
+        /**
+         * Generator for dealing the hidden tiles.
+         */
+        private final SplittableRandom random;
+
+        /**
+         * Random policy finishing the games.
+         */
+        private final RandomStrategy playoutPolicy;
+
+        /**
+         * Whether virtual loss is applied.
+         */
+        private final boolean virtualLoss;
+
+        /**
+         * Legal moves of the current position.
+         */
+        private final int[] moves;
+
+        /**
+         * Stamp of every move that is legal and not yet matched with a child.
+         */
+        private final int[] marks;
+
+        /**
+         * Nodes visited by the current iteration.
+         */
+        private final int[] path;
+
+        /**
+         * The stamp of the current node.
+         */
+        private int stamp;
+
+        /**
+         * The game being searched.
+         */
+        private GameEngine root;
+
+        /**
+         * Time at which the search must stop.
+         */
+        private long deadline;
+
+        /**
+         * Playouts this worker may make for the current move.
+         */
+        private int limit;
+
+        /**
+         * Playouts this worker made for the current move.
+         */
+        private long playouts;
+
+        /**
+         * Constructs a worker.
+         *
+         * @param tree        the tree to grow
+         * @param gameRules   the rules of the game
+         * @param random      the worker's own generator
+         * @param virtualLoss whether other threads share the tree
+         */
+        Worker(SearchTree tree, Rules gameRules, SplittableRandom random, boolean virtualLoss) {
+            DominoSet set = gameRules.getMoveTable().getDominoSet();
+            this.tree = tree;
+            this.game = new GameEngine(set.getDominoRange() - 1, 0L, gameRules.getRuleSet());
+            this.random = random;
+            this.playoutPolicy = new RandomStrategy(random.split());
+            this.virtualLoss = virtualLoss;
+            this.moves = new int[game.maxMoves()];
+            this.marks = new int[4 * set.size()];
+            this.path = new int[set.size() + 1];
+        }
+
+        /**
+         * Sets up the search of a move.
+         *
+         * @param root     the game being searched; only read
+         * @param deadline time at which the search must stop
+         * @param limit    playouts this worker may make
+         */
+        void prepare(GameEngine root, long deadline, int limit) {
+            this.root = root;
+            this.deadline = deadline;
+            this.limit = limit;
+            this.playouts = 0;
+        }
+
+        /**
+         * Runs iterations until the playout limit or the deadline is reached.
+         *
+         * @return nothing
+         */
+        @Override
+        public Void call() {
+            Players observer = root.getCurrentPlayer();
+            while (playouts < limit && System.nanoTime() < deadline) {
+                iterate(observer);
+                playouts++;
+            }
+            return null;
+        }
+
+        /**
+         * Runs one iteration: a new guess of the hidden tiles, selection, expansion, a random
+         * playout and backing up the result.
+         *
+         * @param observer the player searching
+         */
+        private void iterate(Players observer) {
+            game.copyFrom(root);
+            game.redeal(observer, random);
+            int node = 0;
+            int depth = 0;
+            boolean expanded = false;
+            while (!expanded && !game.isTerminal()) {
+                int count = game.legalMoves(moves);
+                if (count == 0) {
+                    if (game.draw() < 0) {
+                        game.pass();
+                    }
+                    continue;
+                }
+                int mover = game.getCurrentPlayer().ordinal();
+                nextStamp();
+                for (int i = 0; i < count; i++) {
+                    marks[moves[i]] = stamp;
+                }
+
+                int best = -1;
+                double bestScore = Double.NEGATIVE_INFINITY;
+                for (int child = tree.firstChild.get(node); child >= 0; child = tree.nextSibling[child]) {
+                    int move = tree.moveOf[child];
+                    if (tree.moverOf[child] != mover || marks[move] != stamp) {
+                        continue;
+                    }
+                    marks[move] = 0;
+                    double score = score(child, tree.available.incrementAndGet(child));
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = child;
+                    }
+                }
+
+                int untried = -1;
+                int offset = random.nextInt(count);
+                for (int i = 0; i < count && untried < 0; i++) {
+                    int move = moves[(i + offset) % count];
+                    if (marks[move] == stamp) {
+                        untried = move;
+                    }
+                }
+                int child;
+                if (untried >= 0) {
+                    child = tree.addChild(node, mover, untried);
+                    if (child >= 0) {
+                        tree.available.incrementAndGet(child);
+                    }
+                    game.play(untried);
+                    expanded = true;
+                } else {
+                    child = best;
+                    game.play(tree.moveOf[child]);
+                }
+                if (child >= 0) {
+                    if (virtualLoss) {
+                        tree.virtualLoss.incrementAndGet(child);
+                    }
+                    path[depth++] = child;
+                    node = child;
+                } else {
+                    expanded = true;
+                }
+            }
+            Players winner = game.isTerminal() ? game.getWinner() : game.playOut(playoutPolicy, playoutPolicy);
+
+            for (int i = 0; i < depth; i++) {
+                int child = path[i];
+                int points = winner == null ? 1 : winner.ordinal() == tree.moverOf[child] ? 2 : 0;
+                tree.reward.addAndGet(child, points);
+                tree.visits.incrementAndGet(child);
+                if (virtualLoss) {
+                    tree.virtualLoss.decrementAndGet(child);
+                }
+            }
+        }
+
+        /**
+         * Computes the UCB1 score of a child, counting running playouts as losses.
+         *
+         * @param child     the child
+         * @param available the number of times the child's move was legal
+         * @return the score
+         */
+        private double score(int child, int available) {
+            int visits = tree.visits.get(child) + (virtualLoss ? tree.virtualLoss.get(child) : 0);
+            if (visits == 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double mean = tree.reward.get(child) / (2.0 * visits);
+            return mean + EXPLORATION * Math.sqrt(Math.log(available) / visits);
+        }
+
+        /**
+         * Moves on to a new stamp, clearing the marks when the stamps run out.
+         */
+        private void nextStamp() {
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                stamp = 1;
+            }
+        }
+    }
+}
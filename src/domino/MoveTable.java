@@ -0,0 +1,258 @@
+package domino;
+
+/**
+ * The matching predicate of a rule set, compiled into lookup tables for a domino set. It is
+ * the single place that decides which tiles may be played against the open ends and which
+ * way round; the engine, and through it the console and the GUI, and the search strategies
+ * all use it.
+ *
+ * <p>A tile fits an open end when its inner side, the one touching the line of play, has the
+ * same number of dots as the end, or 0 when 0 is a wildcard. For every end value the table holds, per
+ * tile, which of the four ways of playing it fit: unflipped or flipped, on the left or the
+ * right end. For every pair of open ends it holds the bitset of tiles playable on either end.
+ * Generating the moves of a tray is then one AND of the tray with the pair's bitset, plus one
+ * table read per playable tile.</p>
+ *
+ * <p>Tables are built and interned by {@link Rules} and are never modified once built, so
+ * they can be shared between games and threads.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public final class MoveTable {
+
+    /**
+     * Fit flags of a tile against one end. Flag {@code 1 << (side << 1 | flipped)}, so
+     * walking the flags from the lowest lists the moves of a tile in the engine's order.
+     */
+    private static final int LEFT_UNFLIPPED = 1;
+    private static final int LEFT_FLIPPED = 1 << 1;
+    private static final int RIGHT_UNFLIPPED = 1 << 2;
+    private static final int RIGHT_FLIPPED = 1 << 3;
+
+    /**
+     * The domino set the table was built for.
+     */
+    private final DominoSet dominoSet;
+
+    /**
+     * {@code true} if a side with 0 dots matches any end.
+     */
+    private final boolean wildcard;
+
+    /**
+     * Number of tiles in the set.
+     */
+    private final int size;
+
+    /**
+     * Number of unique dot values.
+     */
+    private final int dominoRange;
+
+    /**
+     * Fit flags of every tile against every end, indexed by {@code end * size + tile}.
+     */
+    private final byte[] fits;
+
+    /**
+     * Tiles playable on either end, indexed by {@code left * dominoRange + right}. The extra
+     * last entry holds every tile, for the empty board.
+     */
+    private final long[][] playable;
+
+    /**
+     * Builds the tables for a domino set.
+     *
+     * @param dominoSet the domino set
+     * @param wildcard  {@code true} if a side with 0 dots matches any end
+     */
+    MoveTable(DominoSet dominoSet, boolean wildcard) {
+        this.dominoSet = dominoSet;
+        this.wildcard = wildcard;
+        this.size = dominoSet.size();
+        this.dominoRange = dominoSet.getDominoRange();
+        this.fits = new byte[dominoRange * size];
+        for (int end = 0; end < dominoRange; end++) {
+            for (int tile = 0; tile < size; tile++) {
+                int low = dominoSet.low(tile);
+                int high = dominoSet.high(tile);
+                int flags = 0;
+                // Unflipped, the high side touches a left end and the low side a right end.
+                if (matches(high, end)) {
+                    flags |= LEFT_UNFLIPPED;
+                }
+                if (matches(low, end)) {
+                    flags |= RIGHT_UNFLIPPED;
+                }
+                // A flipped double is the same placement, so it is not listed twice.
+                if (low != high && matches(low, end)) {
+                    flags |= LEFT_FLIPPED;
+                }
+                if (low != high && matches(high, end)) {
+                    flags |= RIGHT_FLIPPED;
+                }
+                fits[end * size + tile] = (byte) flags;
+            }
+        }
+        this.playable = new long[dominoRange * dominoRange + 1][dominoSet.words()];
+        for (int left = 0; left < dominoRange; left++) {
+            for (int right = 0; right < dominoRange; right++) {
+                long[] mask = playable[left * dominoRange + right];
+                for (int tile = 0; tile < size; tile++) {
+                    if ((fits[left * size + tile] & (LEFT_UNFLIPPED | LEFT_FLIPPED)) != 0
+                            || (fits[right * size + tile] & (RIGHT_UNFLIPPED | RIGHT_FLIPPED)) != 0) {
+                        mask[tile >>> 6] |= 1L << tile;
+                    }
+                }
+            }
+        }
+        long[] all = playable[dominoRange * dominoRange];
+        for (int tile = 0; tile < size; tile++) {
+            all[tile >>> 6] |= 1L << tile;
+        }
+    }
+
+    /**
+     * The matching predicate: a side fits an end with the same number of dots, and 0 fits
+     * any end when it is a wildcard.
+     *
+     * @param inner the dots on the side touching the line of play
+     * @param end   the dots on the open end
+     * @return {@code true} if the side fits the end
+     */
+    private boolean matches(int inner, int end) {
+        return inner == end || (wildcard && inner == 0);
+    }
+
+    /**
+     * Retrieves the domino set the table was built for.
+     *
+     * @return the domino set
+     */
+    public DominoSet getDominoSet() {
+        return dominoSet;
+    }
+
+    /**
+     * Retrieves the tiles playable on either open end. The returned array is shared and
+     * must not be modified.
+     *
+     * @param left  the left open end, or -1 for an empty board
+     * @param right the right open end, or -1 for an empty board
+     * @return the bitset of playable tiles
+     */
+    public long[] playable(int left, int right) {
+        return playable[left < 0 ? dominoRange * dominoRange : left * dominoRange + right];
+    }
+
+    /**
+     * Checks if a tile can be played on one end in some orientation.
+     *
+     * @param tile the tile index
+     * @param end  the open end, or -1 for an empty board
+     * @param side the end of the line of play
+     * @return {@code true} if the tile fits
+     */
+    public boolean canPlay(int tile, int end, Side side) {
+        return end < 0 || (fits[end * size + tile] & sideFlags(side)) != 0;
+    }
+
+    /**
+     * Checks if a placement fits one end as it is.
+     *
+     * @param placement the tile and its orientation
+     * @param end       the open end, or -1 for an empty board
+     * @param side      the end of the line of play
+     * @return {@code true} if the placement fits
+     */
+    public boolean fits(int placement, int end, Side side) {
+        if (end < 0) {
+            return true;
+        }
+        int tile = DominoSet.tileOf(placement);
+        // Doubles are only listed unflipped, and flipping them changes nothing.
+        if (DominoSet.isFlipped(placement) && dominoSet.low(tile) == dominoSet.high(tile)) {
+            placement ^= 1;
+        }
+        int flag = 1 << ((side == Side.Right ? 2 : 0) | (placement & 1));
+        return (fits[end * size + tile] & flag) != 0;
+    }
+
+    /**
+     * Lists every legal move of the tiles in a set, in ascending tile order. For each tile
+     * the moves are listed left unflipped, left flipped, right unflipped, right flipped. On an
+     * empty board every tile is listed once, unflipped, on the left.
+     *
+     * @param tiles the tiles to play from
+     * @param left  the left open end, or -1 for an empty board
+     * @param right the right open end, or -1 for an empty board
+     * @param moves the buffer to fill, with room for four moves per tile
+     * @return the number of moves
+     */
+    public int legalMoves(TileBits tiles, int left, int right, int[] moves) {
+        return generate(tiles, left, right, false, moves);
+    }
+
+    /**
+     * Lists the legal moves that lead to different positions: like
+     * {@link #legalMoves(TileBits, int, int, int[])}, but when both ends are equal the moves
+     * on the right end are left out, since they mirror those on the left. Used by searches.
+     *
+     * @param tiles the tiles to play from
+     * @param left  the left open end, or -1 for an empty board
+     * @param right the right open end, or -1 for an empty board
+     * @param moves the buffer to fill, with room for four moves per tile
+     * @return the number of moves
+     */
+    public int distinctMoves(TileBits tiles, int left, int right, int[] moves) {
+        return generate(tiles, left, right, true, moves);
+    }
+
+    /**
+     * Lists legal moves.
+     *
+     * @param tiles    the tiles to play from
+     * @param left     the left open end, or -1 for an empty board
+     * @param right    the right open end, or -1 for an empty board
+     * @param distinct {@code true} to leave out right moves when both ends are equal
+     * @param moves    the buffer to fill
+     * @return the number of moves
+     */
+    private int generate(TileBits tiles, int left, int right, boolean distinct, int[] moves) {
+        long[] mask = playable(left, right);
+        int count = 0;
+        int leftRow = left * size;
+        int rightRow = right * size;
+        int rightFlags = distinct && left == right ? 0 : RIGHT_UNFLIPPED | RIGHT_FLIPPED;
+        for (int i = 0; i < mask.length; i++) {
+            long bits = tiles.word(i) & mask[i];
+            while (bits != 0) {
+                int tile = i << 6 | Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (left < 0) {
+                    moves[count++] = tile << 2;
+                    continue;
+                }
+                int flags = (fits[leftRow + tile] & (LEFT_UNFLIPPED | LEFT_FLIPPED))
+                        | (fits[rightRow + tile] & rightFlags);
+                while (flags != 0) {
+                    // Flag bit (side << 1 | flipped) becomes move bits (flipped << 1 | side).
+                    int bit = Integer.numberOfTrailingZeros(flags);
+                    moves[count++] = tile << 2 | (bit & 1) << 1 | bit >>> 1;
+                    flags &= flags - 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Retrieves the fit flags of one end of the line of play.
+     *
+     * @param side the end of the line of play
+     * @return the flags of both orientations on that end
+     */
+    private static int sideFlags(Side side) {
+        return side == Side.Left ? LEFT_UNFLIPPED | LEFT_FLIPPED : RIGHT_UNFLIPPED | RIGHT_FLIPPED;
+    }
+}
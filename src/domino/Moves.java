@@ -0,0 +1,58 @@
+package domino;
+
+/**
+ * Packs a move into a single int so legal-move lists can be kept in plain {@code int[]}
+ * buffers. A move is a placement (see {@link DominoSet}) and the end of the line of play it
+ * goes to: {@code placement << 1 | side}, where the side bit is 0 for left and 1 for right.
+ *
+ * @author Krishna Sedhain
+ */
+public final class Moves {
+
+    /**
+     * Utility class; not instantiated.
+     */
+    private Moves() {
+    }
+
+    /**
+     * Builds a move.
+     *
+     * @param placement the tile and its orientation
+     * @param side      the end of the line of play
+     * @return the move
+     */
+    public static int of(int placement, Side side) {
+        return placement << 1 | (side == Side.Right ? 1 : 0);
+    }
+
+    /**
+     * Retrieves the placement of a move.
+     *
+     * @param move the move
+     * @return the tile and its orientation
+     */
+    public static int placement(int move) {
+        return move >>> 1;
+    }
+
+    /**
+     * Retrieves the tile of a move.
+     *
+     * @param move the move
+     * @return the tile index
+     */
+    public static int tile(int move) {
+        return move >>> 2;
+    }
+
+    /**
+     * Retrieves the end of the line of play a move goes to.
+     *
+     * @param move the move
+     * @return the side
+     */
+    public static Side side(int move) {
+        return (move & 1) == 0 ? Side.Left : Side.Right;
+    }
+}
@@ -0,0 +1,17 @@
+package domino;
+
+/**
+ * Enum representing how {@link MctsStrategy} spreads its search over several threads.
+ *
+ * @author Krishna Sedhain
+ */
+enum Parallelism {
+    /**
+     * Every thread grows its own tree; the root statistics are added up at the end.
+     */
+    Root,
+    /**
+     * All threads grow one shared tree, steered apart by virtual loss.
+     */
+    Tree;
+}
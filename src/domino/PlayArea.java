@@ -0,0 +1,198 @@
+package domino;
+
+import javafx.geometry.Orientation;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.effect.DropShadow;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The middle play area of the GUI: the line of play as one row of tiles, virtualized so that
+ * only the tiles that fit on screen have nodes.
+ *
+ * <p>The area keeps a pool of {@link ImageView}s, one per visible slot, all showing the shared
+ * {@link DominoImages} atlas. Showing a window of the chain only points each slot's viewport
+ * at the tile in that position of the {@link Board}, so no nodes are created as the line
+ * grows, and a game on a double-18 set costs the same per move as one on a double-6 set.
+ * The slots sit in one group that carries the only drop shadow, instead of an effect per
+ * tile. A scroll bar appears once the line is longer than the window; after every play the
+ * window moves to the end that was just played on.</p>
+ *
+ * @author Krishna Sedhain
+ */
+final class PlayArea extends Pane {
+
+    /**
+     * Gap between two tiles in pixels.
+     */
+    private static final double GAP = 4;
+
+    /**
+     * Space kept free around the row of tiles in pixels.
+     */
+    private static final double MARGIN = 15;
+
+    /**
+     * The board whose line of play is shown.
+     */
+    private final Board board;
+
+    /**
+     * The atlas the tiles are shown from.
+     */
+    private final DominoImages images;
+
+    /**
+     * The pooled views, one per visible slot.
+     */
+    private final List<ImageView> slots = new ArrayList<>();
+
+    /**
+     * The group holding the slots; it carries the shared drop shadow.
+     */
+    private final Group row = new Group();
+
+    /**
+     * Scrolls the window along the line when it does not fit.
+     */
+    private final ScrollBar scrollBar = new ScrollBar();
+
+    /**
+     * Position in the line of the tile in the first slot.
+     */
+    private int first;
+
+    /**
+     * Number of tiles shown at the last layout, which decides where the row is centred.
+     */
+    private int laidOut;
+
+    /**
+     * Constructs an empty play area.
+     *
+     * @param board  the board whose line of play is shown
+     * @param images the atlas the tiles are shown from
+     */
+    PlayArea(Board board, DominoImages images) {
+        this.board = board;
+        this.images = images;
+        row.setEffect(new DropShadow(5, Color.BLACK));
+        scrollBar.setOrientation(Orientation.HORIZONTAL);
+        scrollBar.setMin(0);
+        scrollBar.setUnitIncrement(1);
+        scrollBar.setBlockIncrement(1);
+        scrollBar.valueProperty().addListener((observable, oldValue, newValue) -> {
+            int position = (int) Math.round(newValue.doubleValue());
+            if (position != first) {
+                first = position;
+                refresh();
+            }
+        });
+        getChildren().addAll(row, scrollBar);
+    }
+
+    /**
+     * Shows a tile that was just placed on one end of the line, moving the window to that end.
+     *
+     * @param side the end of the line the tile was placed on
+     */
+    void tileAdded(Side side) {
+        int count = board.getPlayedCount();
+        int capacity = capacity();
+        first = side == Side.Left ? 0 : Math.max(0, count - capacity);
+        refresh();
+    }
+
+    /**
+     * Replaces the line of play with a message, for example the winner of the game.
+     *
+     * @param message the node to show in the middle of the area
+     */
+    void showMessage(Node message) {
+        getChildren().setAll(message);
+        requestLayout();
+    }
+
+    /**
+     * Lays out the row in the middle of the area with the scroll bar below it, and points
+     * the slots at the tiles in the window.
+     */
+    @Override
+    protected void layoutChildren() {
+        super.layoutChildren();
+        if (row.getParent() != this) {
+            // Showing a message: centre it.
+            for (Node node : getChildren()) {
+                node.relocate((getWidth() - node.prefWidth(-1)) / 2, (getHeight() - node.prefHeight(-1)) / 2);
+            }
+            return;
+        }
+        int capacity = capacity();
+        while (slots.size() < capacity) {
+            ImageView slot = new ImageView(images.getAtlas());
+            slot.setLayoutX(slots.size() * (DominoImages.TILE_WIDTH + GAP));
+            slots.add(slot);
+            row.getChildren().add(slot);
+        }
+        laidOut = updateSlots();
+        double rowWidth = laidOut * (DominoImages.TILE_WIDTH + GAP) - GAP;
+        row.relocate((getWidth() - rowWidth) / 2, (getHeight() - DominoImages.TILE_HEIGHT) / 2);
+        double barHeight = scrollBar.prefHeight(-1);
+        scrollBar.resizeRelocate(MARGIN, getHeight() - MARGIN - barHeight, getWidth() - 2 * MARGIN, barHeight);
+    }
+
+    /**
+     * Updates the slots after the line or the window changed. The area is only laid out
+     * again when the number of tiles shown changed, since that moves the centred row.
+     */
+    private void refresh() {
+        if (updateSlots() != laidOut) {
+            requestLayout();
+        }
+    }
+
+    /**
+     * Points every slot at the tile in its position of the window, hiding slots past the end
+     * of the line, and updates the scroll bar. Only the pooled slots are touched.
+     *
+     * @return the number of tiles shown
+     */
+    private int updateSlots() {
+        int count = board.getPlayedCount();
+        int capacity = Math.min(capacity(), slots.size());
+        first = Math.max(0, Math.min(first, count - capacity));
+        DominoSet set = board.getDominoSet();
+        for (int i = 0; i < slots.size(); i++) {
+            ImageView slot = slots.get(i);
+            int position = first + i;
+            if (i < capacity && position < count) {
+                int placement = board.getPlacement(position);
+                slot.setViewport(images.viewport(set.leftOf(placement), set.rightOf(placement)));
+                slot.setVisible(true);
+            } else {
+                slot.setVisible(false);
+            }
+        }
+        int hidden = Math.max(0, count - capacity);
+        scrollBar.setVisible(hidden > 0);
+        scrollBar.setMax(hidden);
+        scrollBar.setVisibleAmount(hidden == 0 ? 1 : Math.max(1.0, (double) hidden * capacity / count));
+        scrollBar.setValue(first);
+        return Math.min(capacity, count - first);
+    }
+
+    /**
+     * Computes how many tiles fit side by side in the area.
+     *
+     * @return the number of visible slots, at least one
+     */
+    private int capacity() {
+        return Math.max(1, (int) ((getWidth() - 2 * MARGIN + GAP) / (DominoImages.TILE_WIDTH + GAP)));
+    }
+}
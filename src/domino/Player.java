@@ -15,14 +15,21 @@ enum Players {
 
 /**
  * The Player class represents a player in the game, either a human or a computer.
- * Each player has a tray that holds their dominos.
+ * Each player has a tray that holds their dominos as a bitset of tile indices of a
+ * {@link DominoSet}, so membership and pip matching are constant-time. The tray is always
+ * listed in ascending tile order.
  */
 public class Player {
 
     /**
-     * The tray containing the dominos held by the player.
+     * The tiles held by the player.
      */
-    private ArrayList<Domino> tray = new ArrayList<>();
+    private final TileBits tray;
+
+    /**
+     * The domino set the tiles belong to.
+     */
+    private final DominoSet dominoSet;
 
     /**
      * The type of the current player (either Human or Computer).
@@ -33,18 +40,21 @@ public class Player {
      * Constructs a Player with a specified player type.
      *
      * @param currPlayer The type of player (Human or Computer).
+     * @param dominoSet  The domino set the player's tiles belong to.
      */
-    public Player(Players currPlayer) {
+    public Player(Players currPlayer, DominoSet dominoSet) {
         this.currPlayer = currPlayer;
+        this.dominoSet = dominoSet;
+        this.tray = new TileBits(dominoSet);
     }
 
     /**
      * Adds a domino to the player's tray.
      *
-     * @param dice The domino to be added to the tray.
+     * @param tile The tile index of the domino to be added to the tray.
      */
-    public void addDominoToPlayerTray(Domino dice) {
-        tray.add(dice);
+    public void addDominoToPlayerTray(int tile) {
+        tray.add(tile);
     }
 
     /**
@@ -53,25 +63,92 @@ public class Player {
      * @param index The index of the domino to be removed.
      */
     public void removedDominoFromPlayerTray(int index) {
-        this.tray.remove(index);
+        tray.remove(tray.get(index));
+    }
+
+    /**
+     * Removes the given tile from the player's tray.
+     *
+     * @param tile The tile index of the domino to be removed.
+     */
+    public void removeTileFromPlayerTray(int tile) {
+        tray.remove(tile);
+    }
+
+    /**
+     * Removes every domino from the player's tray.
+     */
+    public void clearTray() {
+        tray.clear();
     }
 
     /**
-     * Retrieves the player's tray containing their dominos.
+     * Retrieves the player's tray as {@link Domino} views for display.
      *
      * @return An ArrayList of dominos in the player's tray.
      */
     public ArrayList<Domino> getTray() {
-        return tray;
+        ArrayList<Domino> dominos = new ArrayList<>(tray.size());
+        for (int tile = tray.next(0); tile >= 0; tile = tray.next(tile + 1)) {
+            dominos.add(dominoSet.toDomino(DominoSet.placement(tile, false)));
+        }
+        return dominos;
     }
 
     /**
      * Retrieves a specific domino from the player's tray at the given index.
      *
      * @param index The index of the domino to retrieve.
-     * @return The domino at the specified index in the tray.
+     * @return A view of the domino at the specified index in the tray.
      */
     public Domino getDominoFromTray(int index) {
+        return dominoSet.toDomino(DominoSet.placement(tray.get(index), false));
+    }
+
+    /**
+     * Retrieves the tile index of the domino at the given index in the tray.
+     *
+     * @param index The index in the tray.
+     * @return The tile index.
+     */
+    public int getTileFromTray(int index) {
         return tray.get(index);
     }
+
+    /**
+     * Finds the tray index of the given tile.
+     *
+     * @param tile A tile index held by the player.
+     * @return The index of the tile in the tray.
+     */
+    public int getTrayIndex(int tile) {
+        return tray.indexOf(tile);
+    }
+
+    /**
+     * Retrieves the bitset of tiles held by the player.
+     *
+     * @return The player's tiles.
+     */
+    public TileBits getTiles() {
+        return tray;
+    }
+
+    /**
+     * Retrieves the number of dominos in the player's tray.
+     *
+     * @return The tray size.
+     */
+    public int getTraySize() {
+        return tray.size();
+    }
+
+    /**
+     * Retrieves the type of this player.
+     *
+     * @return Human or Computer.
+     */
+    public Players getPlayerType() {
+        return currPlayer;
+    }
 }
@@ -0,0 +1,39 @@
+package domino;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A computer player that picks uniformly among its legal moves. Used for the playouts of
+ * {@link MctsStrategy} and as a baseline in tournaments.
+ *
+ * @author Krishna Sedhain
+ */
+public class RandomStrategy implements Strategy {
+
+    /**
+     * The generator the moves are picked with.
+     */
+    private final RandomGenerator random;
+
+    /**
+     * Constructs a random strategy.
+     *
+     * @param random the generator the moves are picked with; not shared between threads
+     */
+    public RandomStrategy(RandomGenerator random) {
+        this.random = random;
+    }
+
+    /**
+     * Picks a legal move at random.
+     *
+     * @param engine the game
+     * @param moves  the legal moves
+     * @param count  the number of legal moves
+     * @return the index of the chosen move
+     */
+    @Override
+    public int chooseMove(GameEngine engine, int[] moves, int count) {
+        return count == 1 ? 0 : random.nextInt(count);
+    }
+}
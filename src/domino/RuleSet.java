@@ -0,0 +1,28 @@
+package domino;
+
+/**
+ * Enum representing the rule variants a game can be played with.
+ *
+ * @author Krishna Sedhain
+ */
+enum RuleSet {
+    /**
+     * The original rules: a side with 0 dots matches any open end, a blocked player draws
+     * until a playable domino turns up, and the player with the fewest dots left wins.
+     */
+    ZeroWildcard,
+    /**
+     * The Draw game: sides match only the same number of dots, and a blocked player draws.
+     */
+    Draw,
+    /**
+     * The Block game: like Draw, but the boneyard stays out of play and a blocked player
+     * passes at once.
+     */
+    Block,
+    /**
+     * All Fives (Muggins): like Draw, but every play that makes the open ends add up to a
+     * multiple of five scores that sum, and the player with the higher score wins.
+     */
+    AllFives;
+}
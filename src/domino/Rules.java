@@ -0,0 +1,208 @@
+package domino;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link RuleSet} compiled for one domino set. Everything a variant changes is turned into
+ * lookup tables and flags when the rules are built, so the engine reads them on every move
+ * without testing which variant is being played:
+ * <ul>
+ *     <li>the matching predicate, as a {@link MoveTable};</li>
+ *     <li>the hand size dealt to each player;</li>
+ *     <li>the draw policy, whether a blocked player draws or passes;</li>
+ *     <li>the scoring, the points a play makes from the sum of the open ends and the points
+ *     the hand is worth at its end;</li>
+ *     <li>the end condition, whether the winner has the fewest dots left or the most points.</li>
+ * </ul>
+ *
+ * <p>Rules are interned per domino set and variant and never change once built, so they can
+ * be shared between games and threads.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public final class Rules {
+
+    /**
+     * Number of dominos dealt to each player in a two player game, in every variant.
+     */
+    private static final int HAND_SIZE = 7;
+
+    /**
+     * Interned rules by domino set, indexed by the ordinal of the variant.
+     */
+    private static final ConcurrentHashMap<DominoSet, Rules[]> RULES = new ConcurrentHashMap<>();
+
+    /**
+     * The variant the rules were compiled from.
+     */
+    private final RuleSet ruleSet;
+
+    /**
+     * The compiled matching predicate.
+     */
+    private final MoveTable moveTable;
+
+    /**
+     * Number of dominos dealt to each player.
+     */
+    private final int handSize;
+
+    /**
+     * {@code true} if a blocked player draws from the boneyard; {@code false} if it passes.
+     */
+    private final boolean drawing;
+
+    /**
+     * Points scored by a play, indexed by the count of the two open ends; null when plays do
+     * not score.
+     */
+    private final int[] playPoints;
+
+    /**
+     * What each placement adds to the count of the open ends as the leftmost domino; a double
+     * counts both its sides.
+     */
+    private final int[] leftCount;
+
+    /**
+     * What each placement adds to the count of the open ends as the rightmost domino.
+     */
+    private final int[] rightCount;
+
+    /**
+     * Compiles a variant for a domino set.
+     *
+     * @param ruleSet   the variant
+     * @param moveTable the matching predicate of the variant, compiled for the domino set
+     */
+    private Rules(RuleSet ruleSet, MoveTable moveTable) {
+        DominoSet set = moveTable.getDominoSet();
+        this.ruleSet = ruleSet;
+        this.moveTable = moveTable;
+        this.handSize = HAND_SIZE;
+        this.drawing = ruleSet != RuleSet.Block;
+        if (ruleSet == RuleSet.AllFives) {
+            int maxCount = 4 * (set.getDominoRange() - 1);
+            playPoints = new int[maxCount + 1];
+            for (int count = 5; count <= maxCount; count += 5) {
+                playPoints[count] = count;
+            }
+            leftCount = new int[2 * set.size()];
+            rightCount = new int[2 * set.size()];
+            for (int placement = 0; placement < leftCount.length; placement++) {
+                int left = set.leftOf(placement);
+                int right = set.rightOf(placement);
+                leftCount[placement] = left == right ? 2 * left : left;
+                rightCount[placement] = left == right ? 2 * right : right;
+            }
+        } else {
+            playPoints = null;
+            leftCount = null;
+            rightCount = null;
+        }
+    }
+
+    /**
+     * Returns the interned rules of a variant for a domino set.
+     *
+     * @param dominoSet the domino set
+     * @param ruleSet   the variant
+     * @return the shared compiled rules
+     */
+    public static Rules of(DominoSet dominoSet, RuleSet ruleSet) {
+        return RULES.computeIfAbsent(dominoSet, Rules::compile)[ruleSet.ordinal()];
+    }
+
+    /**
+     * Compiles every variant for a domino set. The variants without the wildcard share one
+     * move table.
+     *
+     * @param dominoSet the domino set
+     * @return the rules, indexed by the ordinal of the variant
+     */
+    private static Rules[] compile(DominoSet dominoSet) {
+        MoveTable wildcard = new MoveTable(dominoSet, true);
+        MoveTable exact = new MoveTable(dominoSet, false);
+        RuleSet[] variants = RuleSet.values();
+        Rules[] rules = new Rules[variants.length];
+        for (RuleSet variant : variants) {
+            rules[variant.ordinal()] = new Rules(variant, variant == RuleSet.ZeroWildcard ? wildcard : exact);
+        }
+        return rules;
+    }
+
+    /**
+     * Computes the points scored by the play that produced the current board.
+     *
+     * @param board the board right after the play
+     * @return the points scored, 0 if plays do not score
+     */
+    public int playPoints(Board board) {
+        if (playPoints == null) {
+            return 0;
+        }
+        int count = board.getPlayedCount();
+        if (count == 1) {
+            // A single domino is both ends of the line; it counts its dots once.
+            return playPoints[moveTable.getDominoSet().pips(DominoSet.tileOf(board.getPlacement(0)))];
+        }
+        return playPoints[leftCount[board.getPlacement(0)] + rightCount[board.getPlacement(count - 1)]];
+    }
+
+    /**
+     * Computes the points the winner of a hand scores for the dots left in the loser's tray.
+     * All Fives rounds them to the nearest multiple of five.
+     *
+     * @param loserDots the dots left in the loser's tray
+     * @return the points scored
+     */
+    public int handPoints(int loserDots) {
+        return playPoints == null ? loserDots : (loserDots + 2) / 5 * 5;
+    }
+
+    /**
+     * Retrieves the variant the rules were compiled from.
+     *
+     * @return the variant
+     */
+    public RuleSet getRuleSet() {
+        return ruleSet;
+    }
+
+    /**
+     * Retrieves the compiled matching predicate.
+     *
+     * @return the move table
+     */
+    public MoveTable getMoveTable() {
+        return moveTable;
+    }
+
+    /**
+     * Retrieves the number of dominos dealt to each player.
+     *
+     * @return the hand size
+     */
+    public int getHandSize() {
+        return handSize;
+    }
+
+    /**
+     * Checks if a blocked player draws from the boneyard.
+     *
+     * @return {@code true} if blocked players draw; {@code false} if they pass at once
+     */
+    public boolean allowsDrawing() {
+        return drawing;
+    }
+
+    /**
+     * Checks if plays score points during the hand; the winner is then the player with more
+     * points rather than the one with fewer dots left.
+     *
+     * @return {@code true} if plays score
+     */
+    public boolean scoresPlays() {
+        return playPoints != null;
+    }
+}
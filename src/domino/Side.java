@@ -0,0 +1,11 @@
+package domino;
+
+/**
+ * Enum representing the two ends of the line of play.
+ *
+ * @author Krishna Sedhain
+ */
+enum Side {
+    Left,
+    Right;
+}
@@ -0,0 +1,25 @@
+package domino;
+
+/**
+ * A computer player's policy for choosing a move. The engine generates the legal moves of
+ * the player to move and asks the strategy to pick one; drawing and passing are handled by
+ * the engine when there is no legal move.
+ *
+ * <p>Strategies must not allocate while choosing, so that they can be compared at millions
+ * of decisions per second. A strategy may keep scratch buffers, in which case each thread
+ * needs its own instance.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public interface Strategy {
+
+    /**
+     * Chooses one of the legal moves of the player to move.
+     *
+     * @param engine the game; only the mover's own tray and public information may be used
+     * @param moves  the legal moves, see {@link Moves}, in {@code moves[0..count)}
+     * @param count  the number of legal moves, at least one
+     * @return the index of the chosen move in {@code moves}
+     */
+    int chooseMove(GameEngine engine, int[] moves, int count);
+}
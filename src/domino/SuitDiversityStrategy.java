@@ -0,0 +1,92 @@
+package domino;
+
+import java.util.Arrays;
+
+/**
+ * A computer player that keeps as many different suits (numbers of dots) in its tray as
+ * possible, so that it is less likely to be forced to draw later. Among moves that keep the
+ * same number of suits it prefers one that opens an end it can follow, then the heavier tile.
+ *
+ * <p>The suit counts are kept in a scratch array, so an instance must not be shared between
+ * threads.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public class SuitDiversityStrategy implements Strategy {
+
+    /**
+     * Number of tiles in the tray for every suit, reused between calls.
+     */
+    private int[] suitCounts = new int[0];
+
+    /**
+     * Picks the move that leaves the most suits in the tray.
+     *
+     * @param engine the game
+     * @param moves  the legal moves
+     * @param count  the number of legal moves
+     * @return the index of the chosen move
+     */
+    @Override
+    public int chooseMove(GameEngine engine, int[] moves, int count) {
+        DominoSet dominoSet = engine.getDominoSet();
+        TileBits tray = engine.getPlayer(engine.getCurrentPlayer()).getTiles();
+        int suits = countSuits(dominoSet, tray);
+
+        int best = 0;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int tile = Moves.tile(move);
+            int low = dominoSet.low(tile);
+            int high = dominoSet.high(tile);
+            int remainingSuits = suits;
+            if (--suitCounts[low] == 0) {
+                remainingSuits--;
+            }
+            if (low != high && --suitCounts[high] == 0) {
+                remainingSuits--;
+            }
+            int placement = Moves.placement(move);
+            int openedEnd = Moves.side(move) == Side.Left ? dominoSet.leftOf(placement) : dominoSet.rightOf(placement);
+            int canFollow = suitCounts[openedEnd] > 0 ? 1 : 0;
+            int score = (remainingSuits * 2 + canFollow) * 64 + dominoSet.pips(tile);
+            suitCounts[low]++;
+            if (low != high) {
+                suitCounts[high]++;
+            }
+            if (score > bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Fills the suit counts for the tray.
+     *
+     * @param dominoSet the domino set
+     * @param tray      the tray of the player to move
+     * @return the number of suits with at least one tile
+     */
+    private int countSuits(DominoSet dominoSet, TileBits tray) {
+        if (suitCounts.length != dominoSet.getDominoRange()) {
+            suitCounts = new int[dominoSet.getDominoRange()];
+        } else {
+            Arrays.fill(suitCounts, 0);
+        }
+        int suits = 0;
+        for (int tile = tray.next(0); tile >= 0; tile = tray.next(tile + 1)) {
+            int low = dominoSet.low(tile);
+            int high = dominoSet.high(tile);
+            if (suitCounts[low]++ == 0) {
+                suits++;
+            }
+            if (low != high && suitCounts[high]++ == 0) {
+                suits++;
+            }
+        }
+        return suits;
+    }
+}
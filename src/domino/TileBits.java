@@ -0,0 +1,221 @@
+package domino;
+
+import java.util.Arrays;
+
+/**
+ * A set of tiles of a {@link DominoSet}, stored as a bitset over tile indices. A double-9
+ * set fits in a single {@code long}; larger sets use one more word per 64 tiles.
+ *
+ * <p>Together with the per-pip masks of {@link DominoSet#pipMask(int)}, questions such as
+ * "does this hand hold any tile with k dots" are a single AND per word. Tiles are always
+ * iterated in ascending index order, which is also the order players see their tray in.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public final class TileBits {
+
+    /**
+     * The bits, tile {@code t} is bit {@code t & 63} of word {@code t >>> 6}.
+     */
+    private final long[] words;
+
+    /**
+     * The number of tiles in the set.
+     */
+    private int count;
+
+    /**
+     * Constructs an empty set able to hold every tile of the given domino set.
+     *
+     * @param dominoSet the domino set the tiles belong to
+     */
+    public TileBits(DominoSet dominoSet) {
+        this.words = new long[dominoSet.words()];
+    }
+
+    /**
+     * Adds a tile to the set.
+     *
+     * @param tile the tile index
+     */
+    public void add(int tile) {
+        long bit = 1L << tile;
+        if ((words[tile >>> 6] & bit) == 0) {
+            words[tile >>> 6] |= bit;
+            count++;
+        }
+    }
+
+    /**
+     * Removes a tile from the set.
+     *
+     * @param tile the tile index
+     */
+    public void remove(int tile) {
+        long bit = 1L << tile;
+        if ((words[tile >>> 6] & bit) != 0) {
+            words[tile >>> 6] &= ~bit;
+            count--;
+        }
+    }
+
+    /**
+     * Checks if a tile is in the set.
+     *
+     * @param tile the tile index
+     * @return {@code true} if the tile is in the set
+     */
+    public boolean contains(int tile) {
+        return (words[tile >>> 6] & (1L << tile)) != 0;
+    }
+
+    /**
+     * Retrieves one word of the bitset.
+     *
+     * @param index the word index, below {@link DominoSet#words()}
+     * @return the bits of tiles {@code 64 * index} to {@code 64 * index + 63}
+     */
+    public long word(int index) {
+        return words[index];
+    }
+
+    /**
+     * Checks if the set shares at least one tile with the given mask.
+     *
+     * @param mask a mask with the same number of words, such as a pip mask
+     * @return {@code true} if any tile is in both
+     */
+    public boolean intersects(long[] mask) {
+        for (int i = 0; i < words.length; i++) {
+            if ((words[i] & mask[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the lowest tile of the set that is also in either of the two masks.
+     *
+     * @param first  a mask with the same number of words
+     * @param second another mask with the same number of words
+     * @return the tile index, or -1 if there is none
+     */
+    public int firstIn(long[] first, long[] second) {
+        for (int i = 0; i < words.length; i++) {
+            long common = words[i] & (first[i] | second[i]);
+            if (common != 0) {
+                return i << 6 | Long.numberOfTrailingZeros(common);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the next tile in the set at or after the given tile index.
+     *
+     * @param from the tile index to start at
+     * @return the next tile index, or -1 if there is none
+     */
+    public int next(int from) {
+        int i = from >>> 6;
+        if (i >= words.length) {
+            return -1;
+        }
+        long word = words[i] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return i << 6 | Long.numberOfTrailingZeros(word);
+            }
+            if (++i == words.length) {
+                return -1;
+            }
+            word = words[i];
+        }
+    }
+
+    /**
+     * Retrieves the tile at the given position when the set is listed in ascending order.
+     *
+     * @param index the position, starting at 0
+     * @return the tile index
+     */
+    public int get(int index) {
+        for (int i = 0; i < words.length; i++) {
+            int bits = Long.bitCount(words[i]);
+            if (index < bits) {
+                long word = words[i];
+                for (int j = 0; j < index; j++) {
+                    word &= word - 1;
+                }
+                return i << 6 | Long.numberOfTrailingZeros(word);
+            }
+            index -= bits;
+        }
+        throw new IndexOutOfBoundsException("Tile position out of range: " + index);
+    }
+
+    /**
+     * Finds the position of a tile when the set is listed in ascending order.
+     *
+     * @param tile a tile index in the set
+     * @return the number of tiles in the set below it
+     */
+    public int indexOf(int tile) {
+        int index = 0;
+        for (int i = 0; i < tile >>> 6; i++) {
+            index += Long.bitCount(words[i]);
+        }
+        return index + Long.bitCount(words[tile >>> 6] & ((1L << tile) - 1));
+    }
+
+    /**
+     * Sums the dots on all tiles of the set.
+     *
+     * @param dominoSet the domino set the tiles belong to
+     * @return the total number of dots
+     */
+    public int pipTotal(DominoSet dominoSet) {
+        int total = 0;
+        for (int tile = next(0); tile >= 0; tile = next(tile + 1)) {
+            total += dominoSet.pips(tile);
+        }
+        return total;
+    }
+
+    /**
+     * Replaces the contents of this set with the contents of another set of the same size.
+     *
+     * @param other the set to copy
+     */
+    public void copyFrom(TileBits other) {
+        System.arraycopy(other.words, 0, words, 0, words.length);
+        count = other.count;
+    }
+
+    /**
+     * Removes every tile from the set.
+     */
+    public void clear() {
+        Arrays.fill(words, 0L);
+        count = 0;
+    }
+
+    /**
+     * Retrieves the number of tiles in the set.
+     *
+     * @return the number of tiles
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Checks if the set is empty.
+     *
+     * @return {@code true} if there are no tiles
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+}
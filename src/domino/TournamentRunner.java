@@ -0,0 +1,462 @@
+package domino;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Plays large numbers of computer-vs-computer games in parallel and reports, for every
+ * pairing, the wins of each seat, ties, pip margins and game lengths.
+ *
+ * <p>The games of each pairing are split evenly over a fixed pool of workers. Game {@code i}
+ * is always shuffled from {@link GameSeeds#forGame(long, long)} of the tournament seed and
+ * {@code i}, so results are reproducible whatever the number of threads, and every pairing
+ * plays the same series of deals. Each worker reuses one {@link GameEngine} per pairing for
+ * all of its games and only writes to its own {@link Result}s, which are added together once
+ * all workers are done, so the games share no state, no random generator and no locks.</p>
+ *
+ * <p>Optionally every game is recorded (see {@link GameRecords}). Each worker then streams its
+ * games into its own file, {@code games-<worker>.rec} in the record directory, so recording
+ * adds no locks either.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public class TournamentRunner {
+
+    /**
+     * A series of games between two computer strategies with a given domino set and rules.
+     * The first seat moves first. Strategies are created per worker, so they may keep
+     * scratch state.
+     */
+    public static final class Pairing {
+
+        /**
+         * Name of the pairing used in reports.
+         */
+        private final String name;
+
+        /**
+         * The maximum number of dots of the domino set.
+         */
+        private final int maxDots;
+
+        /**
+         * The rules the games are played with.
+         */
+        private final RuleSet ruleSet;
+
+        /**
+         * Creates the strategy of the first seat.
+         */
+        private final Supplier<Strategy> first;
+
+        /**
+         * Creates the strategy of the second seat.
+         */
+        private final Supplier<Strategy> second;
+
+        /**
+         * Constructs a pairing played with the zero-wildcard rules.
+         *
+         * @param name    the name used in reports
+         * @param maxDots the maximum number of dots of the domino set
+         * @param first   creates the strategy of the first seat
+         * @param second  creates the strategy of the second seat
+         */
+        public Pairing(String name, int maxDots, Supplier<Strategy> first, Supplier<Strategy> second) {
+            this(name, maxDots, RuleSet.ZeroWildcard, first, second);
+        }
+
+        /**
+         * Constructs a pairing.
+         *
+         * @param name    the name used in reports
+         * @param maxDots the maximum number of dots of the domino set
+         * @param ruleSet the rules the games are played with
+         * @param first   creates the strategy of the first seat
+         * @param second  creates the strategy of the second seat
+         */
+        public Pairing(String name, int maxDots, RuleSet ruleSet, Supplier<Strategy> first, Supplier<Strategy> second) {
+            this.name = name;
+            this.maxDots = maxDots;
+            this.ruleSet = ruleSet;
+            this.first = first;
+            this.second = second;
+        }
+
+        /**
+         * Retrieves the name of the pairing.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Retrieves the maximum number of dots of the domino set.
+         *
+         * @return the maximum number of dots
+         */
+        public int getMaxDots() {
+            return maxDots;
+        }
+
+        /**
+         * Retrieves the rules the games are played with.
+         *
+         * @return the rule set
+         */
+        public RuleSet getRuleSet() {
+            return ruleSet;
+        }
+
+        /**
+         * Creates a new strategy for the first seat.
+         *
+         * @return the strategy
+         */
+        public Strategy newFirst() {
+            return first.get();
+        }
+
+        /**
+         * Creates a new strategy for the second seat.
+         *
+         * @return the strategy
+         */
+        public Strategy newSecond() {
+            return second.get();
+        }
+    }
+
+    /**
+     * Totals for the games played in one pairing.
+     */
+    public static final class Result {
+
+        /**
+         * The pairing the games were played in.
+         */
+        private final Pairing pairing;
+
+        /**
+         * Number of games played.
+         */
+        private long games;
+
+        /**
+         * Number of games won by the first seat.
+         */
+        private long firstSeatWins;
+
+        /**
+         * Number of games won by the second seat.
+         */
+        private long secondSeatWins;
+
+        /**
+         * Number of tied games.
+         */
+        private long ties;
+
+        /**
+         * Sum over all games of the second seat's remaining dots minus the first seat's.
+         */
+        private long marginTotal;
+
+        /**
+         * Sum over all games of the number of turns taken.
+         */
+        private long turnTotal;
+
+        /**
+         * Constructs empty totals for a pairing.
+         *
+         * @param pairing the pairing
+         */
+        public Result(Pairing pairing) {
+            this.pairing = pairing;
+        }
+
+        /**
+         * Adds a finished game to the totals.
+         *
+         * @param engine the engine holding the finished game
+         */
+        void record(GameEngine engine) {
+            games++;
+            Players winner = engine.getWinner();
+            if (winner == Players.Human) {
+                firstSeatWins++;
+            } else if (winner == Players.Computer) {
+                secondSeatWins++;
+            } else {
+                ties++;
+            }
+            marginTotal += engine.pipTotal(Players.Computer) - engine.pipTotal(Players.Human);
+            turnTotal += engine.getTurnCount();
+        }
+
+        /**
+         * Adds the totals of another worker for the same pairing.
+         *
+         * @param other the totals to add
+         */
+        void merge(Result other) {
+            games += other.games;
+            firstSeatWins += other.firstSeatWins;
+            secondSeatWins += other.secondSeatWins;
+            ties += other.ties;
+            marginTotal += other.marginTotal;
+            turnTotal += other.turnTotal;
+        }
+
+        /**
+         * Retrieves the pairing.
+         *
+         * @return the pairing
+         */
+        public Pairing getPairing() {
+            return pairing;
+        }
+
+        /**
+         * Retrieves the number of games played.
+         *
+         * @return the number of games
+         */
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * Retrieves the number of games won by the first seat.
+         *
+         * @return the number of wins
+         */
+        public long getFirstSeatWins() {
+            return firstSeatWins;
+        }
+
+        /**
+         * Retrieves the number of games won by the second seat.
+         *
+         * @return the number of wins
+         */
+        public long getSecondSeatWins() {
+            return secondSeatWins;
+        }
+
+        /**
+         * Retrieves the number of tied games.
+         *
+         * @return the number of ties
+         */
+        public long getTies() {
+            return ties;
+        }
+
+        /**
+         * Retrieves the average pip margin in favour of the first seat.
+         *
+         * @return the second seat's remaining dots minus the first seat's, averaged
+         */
+        public double getAverageMargin() {
+            return games == 0 ? 0 : (double) marginTotal / games;
+        }
+
+        /**
+         * Retrieves the average number of turns per game.
+         *
+         * @return the average game length
+         */
+        public double getAverageTurns() {
+            return games == 0 ? 0 : (double) turnTotal / games;
+        }
+
+        /**
+         * Returns a one line summary of the totals.
+         *
+         * @return the summary
+         */
+        @Override
+        public String toString() {
+            return String.format("%-28s games %9d  first %6.2f%%  second %6.2f%%  ties %5.2f%%  margin %+7.2f  turns %6.2f",
+                    pairing.getName(), games, percent(firstSeatWins), percent(secondSeatWins),
+                    percent(ties), getAverageMargin(), getAverageTurns());
+        }
+
+        /**
+         * Computes the share of the games a count stands for.
+         *
+         * @param count the number of games
+         * @return the percentage, or 0 when no games were played
+         */
+        private double percent(long count) {
+            return games == 0 ? 0 : 100.0 * count / games;
+        }
+    }
+
+    /**
+     * Number of worker threads.
+     */
+    private final int threads;
+
+    /**
+     * Seed the game seeds are derived from.
+     */
+    private final long seed;
+
+    /**
+     * Directory the games are recorded in, or null to record nothing.
+     */
+    private final Path recordDirectory;
+
+    /**
+     * Constructs a runner that records nothing.
+     *
+     * @param threads number of worker threads
+     * @param seed    seed the game seeds are derived from
+     */
+    public TournamentRunner(int threads, long seed) {
+        this(threads, seed, null);
+    }
+
+    /**
+     * Constructs a runner.
+     *
+     * @param threads         number of worker threads
+     * @param seed            seed the game seeds are derived from
+     * @param recordDirectory directory every game is recorded in, one file per worker, or
+     *                        null to record nothing
+     */
+    public TournamentRunner(int threads, long seed, Path recordDirectory) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one worker thread is required.");
+        }
+        this.threads = threads;
+        this.seed = seed;
+        this.recordDirectory = recordDirectory;
+    }
+
+    /**
+     * Plays the given number of games for every pairing and returns the merged totals.
+     *
+     * @param pairings        the pairings to play
+     * @param gamesPerPairing number of games to play in each pairing
+     * @return the totals, in the same order as the pairings
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public List<Result> run(List<Pairing> pairings, int gamesPerPairing) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result[]>> shares = new ArrayList<>(threads);
+            for (int worker = 0; worker < threads; worker++) {
+                long from = (long) gamesPerPairing * worker / threads;
+                long to = (long) gamesPerPairing * (worker + 1) / threads;
+                Path recordFile = recordDirectory == null ? null : recordDirectory.resolve("games-" + worker + ".rec");
+                shares.add(pool.submit(() -> playShare(pairings, from, to, seed, recordFile)));
+            }
+            List<Result> totals = new ArrayList<>(pairings.size());
+            for (Pairing pairing : pairings) {
+                totals.add(new Result(pairing));
+            }
+            for (Future<Result[]> share : shares) {
+                Result[] results = share.get();
+                for (int i = 0; i < results.length; i++) {
+                    totals.get(i).merge(results[i]);
+                }
+            }
+            return totals;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Tournament worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one worker's share of the games of every pairing.
+     *
+     * @param pairings   the pairings to play
+     * @param from       index of the worker's first game in each pairing
+     * @param to         index after the worker's last game in each pairing
+     * @param seed       seed the game seeds are derived from
+     * @param recordFile file the worker's games are recorded in, or null
+     * @return the worker's totals, in the same order as the pairings
+     * @throws IOException if the record file cannot be written
+     */
+    private static Result[] playShare(List<Pairing> pairings, long from, long to, long seed, Path recordFile)
+            throws IOException {
+        GameRecordWriter recorder = recordFile == null ? null : GameRecordWriter.create(recordFile);
+        try {
+            Result[] results = new Result[pairings.size()];
+            for (int i = 0; i < results.length; i++) {
+                Pairing pairing = pairings.get(i);
+                GameEngine engine = new GameEngine(pairing.getMaxDots(), pairing.getRuleSet());
+                engine.setRecorder(recorder);
+                Strategy first = pairing.newFirst();
+                Strategy second = pairing.newSecond();
+                Result result = new Result(pairing);
+                for (long game = from; game < to; game++) {
+                    engine.reset(GameSeeds.forGame(seed, game));
+                    engine.deal();
+                    engine.playOut(first, second);
+                    result.record(engine);
+                }
+                results[i] = result;
+            }
+            return results;
+        } finally {
+            if (recorder != null) {
+                recorder.close();
+            }
+        }
+    }
+
+    /**
+     * Runs a tournament from the command line.
+     *
+     * @param args optional games per pairing (default 100000), number of threads (default
+     *             the number of processors), seed (default 1), rule set (default
+     *             ZeroWildcard) and a directory to record the games in (default none)
+     * @throws InterruptedException if interrupted while waiting for the workers
+     * @throws IOException          if the record directory cannot be created
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+        RuleSet ruleSet = args.length > 3 ? RuleSet.valueOf(args[3]) : RuleSet.ZeroWildcard;
+        Path recordDirectory = args.length > 4 ? Files.createDirectories(Path.of(args[4])) : null;
+
+        String[] names = {"first-fit", "heaviest", "diversity"};
+        List<Supplier<Strategy>> strategies = List.of(
+                FirstFitStrategy::new, HeaviestTileStrategy::new, SuitDiversityStrategy::new);
+        List<Pairing> pairings = new ArrayList<>();
+        for (int maxDots : new int[]{6, 9, 12}) {
+            for (int i = 0; i < names.length; i++) {
+                for (int j = 0; j < names.length; j++) {
+                    pairings.add(new Pairing(names[i] + " vs " + names[j] + " d" + maxDots, maxDots, ruleSet,
+                            strategies.get(i), strategies.get(j)));
+                }
+            }
+        }
+        long start = System.nanoTime();
+        List<Result> results = new TournamentRunner(threads, seed, recordDirectory).run(pairings, games);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (Result result : results) {
+            System.out.println(result);
+        }
+        System.out.printf("%d games on %d threads in %.2f s (%.0f games/s)%n",
+                (long) games * pairings.size(), threads, seconds, games * pairings.size() / seconds);
+    }
+}
@@ -0,0 +1,161 @@
+package domino;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results keyed by 64-bit Zobrist hashes, used by the
+ * search strategies to avoid searching the same position twice.
+ *
+ * <p>Entries live in buckets of two slots, stored in parallel primitive arrays so probing
+ * and storing never allocate. When a bucket is full the new result replaces, in order of
+ * preference, an entry for the same position, an empty slot, an entry left over from an
+ * earlier search, or whichever of the two entries was searched to the smaller depth. A
+ * position therefore never sits in both slots, and deep results survive shallow ones.</p>
+ *
+ * @author Krishna Sedhain
+ */
+public class TranspositionTable {
+
+    /**
+     * Position hash of every slot.
+     */
+    private final long[] keys;
+
+    /**
+     * Value of every slot.
+     */
+    private final double[] values;
+
+    /**
+     * Depth (bits 24-31), search generation (bits 16-23) and best move plus one (bits 0-15)
+     * of every slot; 0 marks an empty slot.
+     */
+    private final int[] meta;
+
+    /**
+     * Mask selecting the first slot of a bucket from a hash.
+     */
+    private final int mask;
+
+    /**
+     * The current search generation, never 0.
+     */
+    private int generation = 1;
+
+    /**
+     * Constructs a table with {@code 2^bits} slots.
+     *
+     * @param bits the base-2 logarithm of the number of slots, from 1 to 28
+     */
+    public TranspositionTable(int bits) {
+        if (bits < 1 || bits > 28) {
+            throw new IllegalArgumentException("Table size must be between 2^1 and 2^28 slots.");
+        }
+        this.keys = new long[1 << bits];
+        this.values = new double[1 << bits];
+        this.meta = new int[1 << bits];
+        this.mask = (1 << bits) - 2;
+    }
+
+    /**
+     * Starts a new search; entries from earlier searches are still found but replaced first.
+     */
+    public void newSearch() {
+        generation = generation == 255 ? 1 : generation + 1;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        Arrays.fill(meta, 0);
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key the position hash
+     * @return the slot holding the position, or -1 if it is not in the table
+     */
+    public int find(long key) {
+        int slot = (int) key & mask;
+        if (meta[slot] != 0 && keys[slot] == key) {
+            return slot;
+        }
+        if (meta[slot + 1] != 0 && keys[slot + 1] == key) {
+            return slot + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieves the value stored in a slot.
+     *
+     * @param slot a slot returned by {@link #find(long)}
+     * @return the value
+     */
+    public double value(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Retrieves the depth the value in a slot was searched to.
+     *
+     * @param slot a slot returned by {@link #find(long)}
+     * @return the depth
+     */
+    public int depth(int slot) {
+        return meta[slot] >>> 24;
+    }
+
+    /**
+     * Retrieves the best move stored in a slot.
+     *
+     * @param slot a slot returned by {@link #find(long)}
+     * @return the best move, or -1 if none was stored
+     */
+    public int bestMove(int slot) {
+        return (meta[slot] & 0xffff) - 1;
+    }
+
+    /**
+     * Stores a search result, replacing an older or shallower entry of the bucket.
+     *
+     * @param key      the position hash
+     * @param depth    the depth searched, from 0 to 255
+     * @param value    the value of the position
+     * @param bestMove the best move, from -1 to 65534
+     */
+    public void store(long key, int depth, double value, int bestMove) {
+        int first = (int) key & mask;
+        int slot;
+        if (keys[first] == key && meta[first] != 0) {
+            slot = first;
+        } else if (keys[first + 1] == key && meta[first + 1] != 0) {
+            slot = first + 1;
+        } else if (meta[first] == 0) {
+            slot = first;
+        } else if (meta[first + 1] == 0) {
+            slot = first + 1;
+        } else if (generationOf(first) != generation) {
+            slot = first;
+        } else if (generationOf(first + 1) != generation) {
+            slot = first + 1;
+        } else {
+            slot = depth(first) <= depth(first + 1) ? first : first + 1;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        meta[slot] = depth << 24 | generation << 16 | (bestMove + 1);
+    }
+
+    /**
+     * Retrieves the search generation a slot was written in.
+     *
+     * @param slot the slot
+     * @return the generation
+     */
+    private int generationOf(int slot) {
+        return (meta[slot] >>> 16) & 0xff;
+    }
+}